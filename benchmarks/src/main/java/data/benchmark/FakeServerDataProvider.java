@@ -0,0 +1,27 @@
+package data.benchmark;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import data.provider.GoogleDocsDataProvider;
+
+/**
+ * Provider of sheets client that is talking to {@link FakeSheetsServer} without authorization.
+ */
+public class FakeServerDataProvider extends GoogleDocsDataProvider {
+    private final Sheets sheets;
+
+    public FakeServerDataProvider(String rootUrl, int readTimeoutMillis) {
+        sheets = new Sheets
+                .Builder(new NetHttpTransport(), JacksonFactory.getDefaultInstance(),
+                        request -> request.setReadTimeout(readTimeoutMillis))
+                .setRootUrl(rootUrl)
+                .setApplicationName("Google Sheets Benchmark")
+                .build();
+    }
+
+    @Override
+    public Sheets getSheetsService() {
+        return sheets;
+    }
+}
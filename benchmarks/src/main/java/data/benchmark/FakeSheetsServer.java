@@ -0,0 +1,266 @@
+package data.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for google sheets v4 endpoints that are used by the loader:
+ * spreadsheets.get and spreadsheets.values.batchGet with COLUMNS major dimension.
+ * <p>
+ * Each response is delayed by the configured latency. Part of responses can be replaced with 429 quota error
+ * or delayed longer than client read timeout, so fetch strategies can be compared under the same failures.
+ */
+public class FakeSheetsServer implements AutoCloseable {
+    private static final String SPREADSHEETS_PATH = "/v4/spreadsheets/";
+    private static final String BATCH_GET_SUFFIX = "/values:batchGet";
+
+    private final Map<String, Map<String, List<List<String>>>> documents;
+    private final long latencyMillis;
+    private final double quotaErrorRate;
+    private final double timeoutRate;
+    private final long timeoutMillis;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "fake-sheets-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger requestsCount = new AtomicInteger();
+    private final AtomicInteger failuresCount = new AtomicInteger();
+
+    /**
+     * Starts server on a free local port.
+     *
+     * @param documents      the documents data by spreadsheet id
+     * @param latencyMillis  the delay of each response
+     * @param quotaErrorRate the part of requests that are failed with 429
+     * @param timeoutRate    the part of requests that are answered after timeoutMillis
+     * @param timeoutMillis  the delay of timed out responses, should be longer than client read timeout
+     * @throws IOException when server can't be started
+     */
+    public FakeSheetsServer(Map<String, Map<String, List<List<String>>>> documents, long latencyMillis,
+                            double quotaErrorRate, double timeoutRate, long timeoutMillis) throws IOException {
+        this.documents = documents;
+        this.latencyMillis = latencyMillis;
+        this.quotaErrorRate = quotaErrorRate;
+        this.timeoutRate = timeoutRate;
+        this.timeoutMillis = timeoutMillis;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(SPREADSHEETS_PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getRootUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    public int getRequestsCount() {
+        return requestsCount.get();
+    }
+
+    public int getFailuresCount() {
+        return failuresCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requestsCount.incrementAndGet();
+            sleep(latencyMillis);
+            double chance = ThreadLocalRandom.current().nextDouble();
+            if (chance < quotaErrorRate) {
+                failuresCount.incrementAndGet();
+                respond(exchange, 429, "{\"error\":{\"code\":429,\"message\":\"Quota exceeded\","
+                        + "\"status\":\"RESOURCE_EXHAUSTED\"}}");
+                return;
+            }
+            if (chance < quotaErrorRate + timeoutRate) {
+                failuresCount.incrementAndGet();
+                sleep(timeoutMillis);
+            }
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            if (path.endsWith(BATCH_GET_SUFFIX)) {
+                String docId = path.substring(SPREADSHEETS_PATH.length(), path.length() - BATCH_GET_SUFFIX.length());
+                Map<String, List<List<String>>> document = documents.get(docId);
+                if (document == null) {
+                    respondNotFound(exchange, docId);
+                    return;
+                }
+                respond(exchange, 200, batchGet(document, query));
+            } else {
+                String docId = path.substring(SPREADSHEETS_PATH.length());
+                Map<String, List<List<String>>> document = documents.get(docId);
+                if (document == null) {
+                    respondNotFound(exchange, docId);
+                    return;
+                }
+                respond(exchange, 200, metadata(document));
+            }
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "{\"error\":{\"code\":500,\"message\":" + quote(e.toString()) + "}}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String metadata(Map<String, List<List<String>>> document) {
+        StringBuilder json = new StringBuilder("{\"sheets\":[");
+        int sheetId = 0;
+        for (Map.Entry<String, List<List<String>>> sheet : document.entrySet()) {
+            if (sheetId > 0) {
+                json.append(',');
+            }
+            int rowCount = 0;
+            for (List<String> column : sheet.getValue()) {
+                rowCount = Math.max(rowCount, column.size());
+            }
+            json.append("{\"properties\":{\"sheetId\":").append(sheetId++)
+                    .append(",\"title\":").append(quote(sheet.getKey()))
+                    .append(",\"gridProperties\":{\"rowCount\":").append(rowCount)
+                    .append(",\"columnCount\":").append(sheet.getValue().size()).append("}}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String batchGet(Map<String, List<List<String>>> document, String query) {
+        StringBuilder json = new StringBuilder("{\"valueRanges\":[");
+        boolean first = true;
+        for (String range : parameters(query, "ranges")) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            int separator = range.lastIndexOf('!');
+            String title = range.substring(0, separator);
+            if (title.startsWith("'")) {
+                title = title.substring(1, title.length() - 1).replace("''", "'");
+            }
+            String[] bounds = range.substring(separator + 1).split(":");
+            List<List<String>> sheet = document.get(title);
+            json.append("{\"range\":").append(quote(range)).append(",\"majorDimension\":\"COLUMNS\"");
+            if (sheet != null) {
+                int from = columnIndex(bounds[0]);
+                int to = Math.min(columnIndex(bounds[1]), sheet.size() - 1);
+                //Rows are optional, 'title'!B:C is the whole column and 'title'!B1:C100 is a page of rows
+                int firstRow = rowIndex(bounds[0], 0);
+                int lastRow = rowIndex(bounds[1], Integer.MAX_VALUE - 1);
+                if (from <= to) {
+                    json.append(",\"values\":[");
+                    for (int c = from; c <= to; c++) {
+                        if (c > from) {
+                            json.append(',');
+                        }
+                        json.append('[');
+                        List<String> column = sheet.get(c);
+                        for (int r = firstRow; r <= lastRow && r < column.size(); r++) {
+                            if (r > firstRow) {
+                                json.append(',');
+                            }
+                            json.append(quote(column.get(r)));
+                        }
+                        json.append(']');
+                    }
+                    json.append(']');
+                }
+            }
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static List<String> parameters(String query, String name) {
+        List<String> values = new ArrayList<>();
+        if (query == null) {
+            return values;
+        }
+        try {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0 && name.equals(parameter.substring(0, separator))) {
+                    values.add(URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return values;
+    }
+
+    private static int columnIndex(String cell) {
+        int index = 0;
+        for (int i = 0; i < cell.length() && Character.isLetter(cell.charAt(i)); i++) {
+            index = index * 26 + (cell.charAt(i) - 'A' + 1);
+        }
+        return index - 1;
+    }
+
+    private static int rowIndex(String cell, int defaultIndex) {
+        int digits = 0;
+        while (digits < cell.length() && Character.isLetter(cell.charAt(digits))) {
+            digits++;
+        }
+        return digits == cell.length() ? defaultIndex : Integer.parseInt(cell.substring(digits)) - 1;
+    }
+
+    private static void respondNotFound(HttpExchange exchange, String docId) throws IOException {
+        respond(exchange, 404, "{\"error\":{\"code\":404,\"message\":"
+                + quote("Requested entity was not found: " + docId) + ",\"status\":\"NOT_FOUND\"}}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String quote(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package data.benchmark;
+
+import data.provider.SheetsDataSource;
+import data.provider.SpreadsheetDataLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end loading of a document from {@link FakeSheetsServer}.
+ * <p>
+ * chunkSize 1 is one values request per sheet, as it was before batching. columns A:Z is a whole sheet request,
+ * B:C is the narrow one. pageRows above 0 streams sheets by pages of that many rows. Quota is practically
+ * unlimited and backoff is short, so only the fetch strategy and injected failures are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dqaa.cacheMode=OFF",
+        "-Dqaa.readQuotaPerMinute=1000000",
+        "-Dqaa.maxRetries=20",
+        "-Dqaa.backoffInitialMillis=10",
+        "-Dqaa.backoffMaxMillis=200"})
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class LoaderBenchmark {
+    private static final String DOC_ID = "benchmarkDocument";
+    private static final int READ_TIMEOUT_MILLIS = 500;
+
+    @Param({"60"})
+    private int sheets;
+
+    @Param({"100"})
+    private int rows;
+
+    @Param({"1", "50"})
+    private int chunkSize;
+
+    @Param({"A:Z", "B:C"})
+    private String columns;
+
+    @Param({"0"})
+    private int pageRows;
+
+    @Param({"0", "20"})
+    private long latencyMillis;
+
+    @Param({"0", "0.05"})
+    private double quotaErrorRate;
+
+    @Param({"0"})
+    private double timeoutRate;
+
+    private FakeSheetsServer server;
+    private FakeServerDataProvider provider;
+    private SpreadsheetDataLoader loader;
+
+    @Setup
+    public void setUp() throws IOException {
+        //Each parameters combination is running in its own fork, so properties are applied before first use
+        System.setProperty("qaa.batchGetChunkSize", String.valueOf(chunkSize));
+        System.setProperty("qaa.sheetColumns", columns);
+        System.setProperty("qaa.pageRows", String.valueOf(pageRows));
+        Map<String, Map<String, List<List<String>>>> documents = new HashMap<>();
+        documents.put(DOC_ID, SpreadsheetGenerator.document(sheets, rows, 2));
+        server = new FakeSheetsServer(documents, latencyMillis, quotaErrorRate, timeoutRate, READ_TIMEOUT_MILLIS * 2);
+        provider = new FakeServerDataProvider(server.getRootUrl(), READ_TIMEOUT_MILLIS);
+        loader = new SpreadsheetDataLoader(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Map<String, List<List<String>>> loadDocument() {
+        return SpreadsheetDataLoader.await(loader.load(provider, DOC_ID));
+    }
+
+    @Benchmark
+    public int streamDocument() {
+        AtomicInteger cells = new AtomicInteger();
+        SpreadsheetDataLoader.await(loader.stream(new SheetsDataSource(provider), DOC_ID,
+                (title, sheetColumns) -> cells.addAndGet(sheetColumns.get(2).size())));
+        return cells.get();
+    }
+}
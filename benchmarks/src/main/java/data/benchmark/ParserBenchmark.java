@@ -0,0 +1,74 @@
+package data.benchmark;
+
+import data.parser.ExamplesTableSerializer;
+import data.parser.GoogleDocsDataParser;
+import data.parser.NestedTableStoryLoader;
+import org.jbehave.core.io.LoadFromClasspath;
+import org.jbehave.core.model.ExamplesTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and serialization of generated spreadsheets of different size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParserBenchmark {
+    @Param({"10", "60"})
+    private int sheets;
+
+    @Param({"50", "500"})
+    private int rows;
+
+    @Param({"0", "5"})
+    private int nestedStructures;
+
+    @Param({"10", "200"})
+    private int generalWidth;
+
+    private GoogleDocsDataParser parser;
+    private Map<String, List<List<String>>> document;
+    private Map<String, String> generalDataMap;
+    private Map<String, List<String>> table;
+    private String resourcesPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        //Nested tables are kept in memory, so the benchmark is not measuring disk writes
+        new NestedTableStoryLoader(new LoadFromClasspath());
+        resourcesPath = Files.createTempDirectory("parser-benchmark").toString();
+        parser = new GoogleDocsDataParser();
+        document = SpreadsheetGenerator.document(sheets, rows, nestedStructures);
+        generalDataMap = parser.parseGeneralData(SpreadsheetGenerator.generalData(generalWidth), resourcesPath);
+        table = SpreadsheetGenerator.table(sheets, rows + generalWidth);
+    }
+
+    @Benchmark
+    public ExamplesTable parseDocument() {
+        return parser.parseExamplesTable(document, generalDataMap, resourcesPath);
+    }
+
+    @Benchmark
+    public String serializeTable() {
+        return ExamplesTableSerializer.serialize(table);
+    }
+}
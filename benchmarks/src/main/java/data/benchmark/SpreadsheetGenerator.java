@@ -0,0 +1,103 @@
+package data.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates spreadsheet data in the format returned by the loader:
+ * sheet title to columns, where column A is human readable label, B is value and C is parsing tag.
+ */
+public final class SpreadsheetGenerator {
+    private static final int NESTED_STRUCTURE_ROWS = 5;
+
+    private SpreadsheetGenerator() {
+    }
+
+    /**
+     * Generates document with run sheets.
+     *
+     * @param sheets           the run sheets count
+     * @param rows             the plain value rows of each sheet
+     * @param nestedStructures the nested structures of each sheet
+     * @return the document data
+     */
+    public static Map<String, List<List<String>>> document(int sheets, int rows, int nestedStructures) {
+        Map<String, List<List<String>>> document = new LinkedHashMap<>();
+        for (int s = 0; s < sheets; s++) {
+            List<String> labels = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            List<String> tags = new ArrayList<>();
+            for (int r = 0; r < rows; r++) {
+                labels.add("Label " + r);
+                //Some values are multiline, the same as in real documents
+                values.add(r % 10 == 0 ? "value " + s + "\nline " + r : "value " + s + "-" + r);
+                tags.add("field" + r);
+            }
+            labels.add("Comment");
+            values.add("ignored value");
+            tags.add("!comment");
+            for (int n = 0; n < nestedStructures; n++) {
+                labels.add("");
+                values.add("");
+                tags.add("@startNestedStructure structure" + n);
+                for (int r = 0; r < NESTED_STRUCTURE_ROWS; r++) {
+                    labels.add("Nested " + r);
+                    values.add("nested " + s + "-" + n + "-" + r);
+                    tags.add("@string#nested" + r);
+                }
+                labels.add("");
+                values.add("");
+                tags.add("@endNestedStructure");
+            }
+            document.put("run" + s, Arrays.asList(labels, values, tags));
+        }
+        return document;
+    }
+
+    /**
+     * Generates general data file with one sheet.
+     *
+     * @param width the general values count
+     * @return the general data file data
+     */
+    public static Map<String, List<List<String>>> generalData(int width) {
+        List<String> labels = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+        for (int g = 0; g < width; g++) {
+            labels.add("General " + g);
+            values.add("general value " + g);
+            tags.add("general" + g);
+        }
+        Map<String, List<List<String>>> document = new LinkedHashMap<>();
+        document.put("general", Arrays.asList(labels, values, tags));
+        return document;
+    }
+
+    /**
+     * Generates column map representation of examples table.
+     *
+     * @param runs    the rows count
+     * @param columns the columns count besides RunName
+     * @return the columns by headers
+     */
+    public static Map<String, List<String>> table(int runs, int columns) {
+        Map<String, List<String>> table = new LinkedHashMap<>();
+        List<String> runNames = new ArrayList<>(runs);
+        for (int r = 0; r < runs; r++) {
+            runNames.add("run" + r);
+        }
+        table.put("RunName", runNames);
+        for (int c = 0; c < columns; c++) {
+            List<String> column = new ArrayList<>(runs);
+            for (int r = 0; r < runs; r++) {
+                column.add("value " + c + "-" + r);
+            }
+            table.put("field" + c, column);
+        }
+        return table;
+    }
+}
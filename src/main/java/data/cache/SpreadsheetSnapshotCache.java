@@ -0,0 +1,246 @@
+package data.cache;
+
+import com.google.api.services.sheets.v4.model.GridProperties;
+import com.google.api.services.sheets.v4.model.Sheet;
+import com.google.api.services.sheets.v4.model.SheetProperties;
+import com.google.api.services.sheets.v4.model.Spreadsheet;
+import data.source.DocumentCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of spreadsheet data, shared by all JVMs that are using the same cache directory.
+ * <p>
+ * Each spreadsheet is stored in its own gzipped snapshot, encoded by {@link DocumentCodec}, together with the time
+ * it was fetched and a fingerprint of spreadsheet structure (sheet ids, titles and grid sizes).
+ * <p>
+ * Loaded values depend on loader settings (requested columns and render options), so snapshots are kept
+ * separately for each settings, and snapshot written with other settings is never used.
+ * <p>
+ * Configuration is taken from system properties:
+ * <ul>
+ * <li>qaa.cacheMode - one of {@link Mode} values, OFF by default</li>
+ * <li>qaa.cacheDir - snapshots directory, googleDocsDataCache in temp directory by default</li>
+ * <li>qaa.cacheTtlMinutes - age after which snapshot is fetched again, 60 by default</li>
+ * </ul>
+ */
+public class SpreadsheetSnapshotCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpreadsheetSnapshotCache.class);
+    private static final int MAGIC = 0x47444443;
+    private static final int FORMAT_VERSION = 2;
+
+    private final Mode mode;
+    private final Path directory;
+    private final long ttlMillis;
+
+    /**
+     * How snapshots are used.
+     */
+    public enum Mode {
+        /**
+         * Snapshots are neither read nor written.
+         */
+        OFF,
+        /**
+         * Snapshot younger than ttl is used when structure of the spreadsheet is not changed.
+         * Costs one metadata request.
+         */
+        VALIDATE,
+        /**
+         * Snapshot younger than ttl is used without any request.
+         */
+        TTL,
+        /**
+         * Snapshot is always used regardless of its age, missing snapshot is an error.
+         */
+        OFFLINE
+    }
+
+    /**
+     * Spreadsheet data saved in cache.
+     */
+    public static class Snapshot {
+        private final long createdMillis;
+        private final String fingerprint;
+        private final Map<String, List<List<String>>> data;
+
+        public Snapshot(long createdMillis, String fingerprint, Map<String, List<List<String>>> data) {
+            this.createdMillis = createdMillis;
+            this.fingerprint = fingerprint;
+            this.data = data;
+        }
+
+        public long getCreatedMillis() {
+            return createdMillis;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public Map<String, List<List<String>>> getData() {
+            return data;
+        }
+    }
+
+    private static final class Holder {
+        private static final SpreadsheetSnapshotCache INSTANCE = new SpreadsheetSnapshotCache(
+                Mode.valueOf(System.getProperty("qaa.cacheMode", Mode.OFF.name()).toUpperCase(Locale.ROOT)),
+                Paths.get(System.getProperty("qaa.cacheDir",
+                        Paths.get(System.getProperty("java.io.tmpdir"), "googleDocsDataCache").toString())),
+                TimeUnit.MINUTES.toMillis(Long.getLong("qaa.cacheTtlMinutes", 60L)));
+    }
+
+    /**
+     * Gets cache configured by system properties.
+     *
+     * @return the shared cache
+     */
+    public static SpreadsheetSnapshotCache getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public SpreadsheetSnapshotCache(Mode mode, Path directory, long ttlMillis) {
+        this.mode = mode;
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Loads snapshot of the spreadsheet.
+     *
+     * @param docId    the spreadsheet id
+     * @param settings the loader settings that snapshot should be written with
+     * @return the snapshot or null when cache is off, snapshot is missing, unreadable or expired
+     */
+    public Snapshot load(String docId, String settings) {
+        if (mode == Mode.OFF) {
+            return null;
+        }
+        Path file = snapshotFile(docId, settings);
+        if (!Files.exists(file)) {
+            LOGGER.info("No cached snapshot of document {} loaded with {}", docId, settings);
+            return null;
+        }
+        Snapshot snapshot;
+        try {
+            snapshot = read(file, settings);
+        } catch (IOException e) {
+            LOGGER.info("Failed to read cached snapshot of document {}. {}", docId, e.toString());
+            return null;
+        }
+        long age = System.currentTimeMillis() - snapshot.getCreatedMillis();
+        if (mode != Mode.OFFLINE && age > ttlMillis) {
+            LOGGER.info("Cached snapshot of document {} is expired, age {} sec", docId, age / 1000);
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Saves snapshot of the spreadsheet. Failure to save is logged and ignored, because cache is optional.
+     *
+     * @param docId       the spreadsheet id
+     * @param settings    the loader settings that data is loaded with
+     * @param fingerprint the spreadsheet structure fingerprint
+     * @param data        the spreadsheet data
+     */
+    public void store(String docId, String settings, String fingerprint, Map<String, List<List<String>>> data) {
+        if (mode == Mode.OFF || mode == Mode.OFFLINE) {
+            return;
+        }
+        Path file = snapshotFile(docId, settings);
+        try {
+            Files.createDirectories(directory);
+            //Writing to temp file first, so other JVMs are never reading half written snapshot
+            Path tempFile = Files.createTempFile(directory, docId, ".tmp");
+            try {
+                write(tempFile, settings, new Snapshot(System.currentTimeMillis(), fingerprint, data));
+                try {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            LOGGER.info("Snapshot of document {} saved to {}", docId, file);
+        } catch (IOException e) {
+            LOGGER.info("Failed to save snapshot of document {}. {}", docId, e.toString());
+        }
+    }
+
+    /**
+     * Builds fingerprint of spreadsheet structure from its metadata.
+     *
+     * @param spreadsheet the spreadsheet metadata with sheet properties
+     * @return the fingerprint
+     */
+    public static String fingerprint(Spreadsheet spreadsheet) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Sheet sheet : spreadsheet.getSheets()) {
+            SheetProperties properties = sheet.getProperties();
+            GridProperties grid = properties.getGridProperties();
+            fingerprint.append(properties.getSheetId()).append(':').append(properties.getTitle());
+            if (grid != null) {
+                fingerprint.append(':').append(grid.getRowCount()).append('x').append(grid.getColumnCount());
+            }
+            fingerprint.append('\n');
+        }
+        return fingerprint.toString();
+    }
+
+    //String hash code is specified, so all JVMs are using the same file for the same settings
+    private Path snapshotFile(String docId, String settings) {
+        return directory.resolve(docId + "-" + Integer.toHexString(settings.hashCode()) + ".snapshot");
+    }
+
+    private static void write(Path file, String settings, Snapshot snapshot) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshot.getCreatedMillis());
+            DocumentCodec.writeString(out, settings);
+            DocumentCodec.writeString(out, snapshot.getFingerprint());
+            DocumentCodec.writeDocument(out, snapshot.getData());
+        }
+    }
+
+    private static Snapshot read(Path file, String settings) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+            long createdMillis = in.readLong();
+            //Different settings can have the same hash code
+            if (!settings.equals(DocumentCodec.readString(in))) {
+                throw new IOException("Snapshot is written with other loader settings");
+            }
+            String fingerprint = DocumentCodec.readString(in);
+            return new Snapshot(createdMillis, fingerprint, DocumentCodec.readDocument(in));
+        }
+    }
+}
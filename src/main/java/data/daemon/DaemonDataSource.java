@@ -0,0 +1,125 @@
+package data.daemon;
+
+import data.metrics.Metrics;
+import data.provider.SheetRangePlanner;
+import data.source.DocumentCodec;
+import data.source.SpreadsheetDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source that receives documents from {@link DataDaemon} of the same machine.
+ * <p>
+ * When daemon is not running, connection breaks before document is received, or daemon loads other columns
+ * or render options, document is loaded by fallback source directly. Load errors reported by daemon are
+ * not retried, because fallback would fail the same way and spend quota of the daemon.
+ * <p>
+ * Configuration is taken from system properties:
+ * <ul>
+ * <li>qaa.daemonPort - daemon port, 47183 by default</li>
+ * <li>qaa.daemonConnectTimeoutMillis - connect timeout, 1000 by default</li>
+ * <li>qaa.daemonReadTimeoutMillis - time to wait for document, 1200000 by default, daemon may wait for quota</li>
+ * </ul>
+ */
+public class DaemonDataSource implements SpreadsheetDataSource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonDataSource.class);
+
+    private final int port;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final String settings;
+    private final SpreadsheetDataSource fallback;
+
+    /**
+     * Instantiates source configured by system properties.
+     *
+     * @param fallback the source that is used when daemon is not available
+     */
+    public DaemonDataSource(SpreadsheetDataSource fallback) {
+        this(DaemonProtocol.configuredPort(), Integer.getInteger("qaa.daemonConnectTimeoutMillis", 1000),
+                Integer.getInteger("qaa.daemonReadTimeoutMillis", 1200000),
+                SheetRangePlanner.getInstance().getSettings(), fallback);
+    }
+
+    /**
+     * Instantiates source.
+     *
+     * @param port                 the daemon port
+     * @param connectTimeoutMillis the connect timeout
+     * @param readTimeoutMillis    the time to wait for document
+     * @param settings             the range planner settings of this JVM, see {@link SheetRangePlanner#getSettings()}
+     * @param fallback             the source that is used when daemon is not available
+     */
+    public DaemonDataSource(int port, int connectTimeoutMillis, int readTimeoutMillis, String settings,
+                            SpreadsheetDataSource fallback) {
+        this.port = port;
+        this.settings = settings;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Map<String, List<List<String>>> load(String docId) throws IOException, GeneralSecurityException {
+        DaemonResponse response;
+        try {
+            response = request(docId);
+        } catch (IOException e) {
+            LOGGER.info("Data daemon on port {} is not available, document {} is loaded directly. {}",
+                    port, docId, e.toString());
+            Metrics.increment("daemon.fallbacks");
+            return fallback.load(docId);
+        }
+        if (response.status == DaemonProtocol.SETTINGS_MISMATCH) {
+            LOGGER.info("Data daemon on port {} can't serve document {} with {}, it is loaded directly. {}",
+                    port, docId, settings, response.error);
+            Metrics.increment("daemon.fallbacks");
+            return fallback.load(docId);
+        }
+        if (response.status != DaemonProtocol.OK) {
+            throw new IOException("Data daemon failed to load document " + docId + ". " + response.error);
+        }
+        Metrics.increment("daemon.loads");
+        return response.data;
+    }
+
+    private DaemonResponse request(String docId) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), connectTimeoutMillis);
+            socket.setSoTimeout(readTimeoutMillis);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(DaemonProtocol.MAGIC);
+            out.writeInt(DaemonProtocol.VERSION);
+            DocumentCodec.writeString(out, docId);
+            DocumentCodec.writeString(out, settings);
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DaemonResponse response = new DaemonResponse();
+            response.status = in.readByte();
+            if (response.status == DaemonProtocol.OK) {
+                response.data = DocumentCodec.readDocument(in);
+            } else {
+                response.error = DocumentCodec.readString(in);
+            }
+            return response;
+        }
+    }
+
+    private static final class DaemonResponse {
+        private byte status;
+        private Map<String, List<List<String>>> data;
+        private String error;
+    }
+}
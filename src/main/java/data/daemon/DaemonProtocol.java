@@ -0,0 +1,27 @@
+package data.daemon;
+
+/*
+ * Wire format of data daemon. Each connection carries one request: magic, protocol version, document id and
+ * range planner settings written by DocumentCodec.writeString. Response is status byte followed by document
+ * encoded by DocumentCodec or by error message.
+ */
+final class DaemonProtocol {
+    static final int MAGIC = 0x47444444;
+    static final int VERSION = 2;
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+    //Daemon loads other columns or render options than client, so client loads the document by itself
+    static final byte SETTINGS_MISMATCH = 2;
+    static final int DEFAULT_PORT = 47183;
+    //Document ids are 44 characters and settings are short, longer strings are rejected before they are allocated
+    static final int MAX_STRING_LENGTH = 1024;
+    //Request is written at once after connection, so slow clients are not holding connection threads
+    static final int REQUEST_TIMEOUT_MILLIS = 10000;
+
+    private DaemonProtocol() {
+    }
+
+    static int configuredPort() {
+        return Integer.getInteger("qaa.daemonPort", DEFAULT_PORT);
+    }
+}
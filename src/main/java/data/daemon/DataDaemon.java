@@ -0,0 +1,187 @@
+package data.daemon;
+
+import data.metrics.Metrics;
+import data.provider.GoogleDocsDataProvider;
+import data.provider.SheetRangePlanner;
+import data.provider.SheetsDataSource;
+import data.provider.SpreadsheetDataLoader;
+import data.source.DocumentCodec;
+import data.source.SpreadsheetDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local data daemon that is shared by parallel test JVMs of one CI machine:
+ * <pre>
+ * java -Dqaa.daemonPort=47183 data.daemon.DataDaemon
+ * </pre>
+ * Daemon is the only process that authorizes, follows request scheduler limits and writes snapshot cache,
+ * forks are started with -Dqaa.dataSource=daemon and receive loaded documents through loopback socket.
+ * Requests of the same document from different forks are joined into one load by {@link SpreadsheetDataLoader}.
+ * <p>
+ * Snapshot cache is used in TTL mode unless qaa.cacheMode is set, so forks that are started later
+ * are not fetching the same documents again.
+ * <p>
+ * Forks send their {@link SheetRangePlanner} settings with each request, forks with other settings than the daemon
+ * load documents by themselves.
+ * <p>
+ * Connections are handled by at most qaa.daemonMaxConnections threads, 64 by default.
+ */
+public class DataDaemon implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataDaemon.class);
+    private static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+    private final SpreadsheetDataSource source;
+    private final SpreadsheetDataLoader loader;
+    private final String settings = SheetRangePlanner.getInstance().getSettings();
+    private final ServerSocket serverSocket;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Binds daemon to loopback address, connections are accepted after {@link #serve()} is called.
+     *
+     * @param source the source of documents
+     * @param loader the loader that joins concurrent loads
+     * @param port   the port, 0 to choose free one
+     * @throws IOException when port can't be bound
+     */
+    public DataDaemon(SpreadsheetDataSource source, SpreadsheetDataLoader loader, int port) throws IOException {
+        this.source = source;
+        this.loader = loader;
+        int maxConnections = Integer.getInteger("qaa.daemonMaxConnections", DEFAULT_MAX_CONNECTIONS);
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("qaa.daemonMaxConnections should be positive: " + maxConnections);
+        }
+        //Connections over the limit wait in the queue, connections over the queue are closed and forks fall back
+        this.executor = new ThreadPoolExecutor(maxConnections, maxConnections, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxConnections), runnable -> {
+            Thread thread = new Thread(runnable, "data-daemon-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (System.getProperty("qaa.cacheMode") == null) {
+            System.setProperty("qaa.cacheMode", "TTL");
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DaemonProtocol.configuredPort();
+        GoogleDocsDataProvider provider = new GoogleDocsDataProvider();
+        provider.startBackgroundRefresh();
+        DataDaemon daemon = new DataDaemon(new SheetsDataSource(provider), SpreadsheetDataLoader.getInstance(), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            daemon.close();
+            provider.close();
+        }, "data-daemon-shutdown"));
+        daemon.serve();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until daemon is closed.
+     *
+     * @throws IOException when server socket fails
+     */
+    public void serve() throws IOException {
+        LOGGER.info("Data daemon is listening on port {}", getPort());
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    break;
+                }
+                throw e;
+            }
+            try {
+                executor.execute(() -> handle(socket));
+            } catch (RejectedExecutionException e) {
+                LOGGER.info("Data daemon is busy, connection is closed.");
+                Metrics.increment("daemon.rejectedConnections");
+                socket.close();
+            }
+        }
+        LOGGER.info("Data daemon is stopped");
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOGGER.info("Failed to close data daemon socket. {}", e.toString());
+        }
+        executor.shutdownNow();
+    }
+
+    private void handle(Socket socket) {
+        String docId = null;
+        try (Socket connection = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+            connection.setSoTimeout(DaemonProtocol.REQUEST_TIMEOUT_MILLIS);
+            if (in.readInt() != DaemonProtocol.MAGIC || in.readInt() != DaemonProtocol.VERSION) {
+                out.writeByte(DaemonProtocol.ERROR);
+                DocumentCodec.writeString(out, "Unsupported data daemon protocol");
+                return;
+            }
+            docId = DocumentCodec.readString(in, DaemonProtocol.MAX_STRING_LENGTH);
+            String clientSettings = DocumentCodec.readString(in, DaemonProtocol.MAX_STRING_LENGTH);
+            if (!settings.equals(clientSettings)) {
+                LOGGER.info("Data daemon loads {}, but document {} is requested with {}",
+                        settings, docId, clientSettings);
+                out.writeByte(DaemonProtocol.SETTINGS_MISMATCH);
+                DocumentCodec.writeString(out, "Data daemon loads " + settings);
+                return;
+            }
+            Metrics.increment("daemon.requests");
+            Map<String, List<List<String>>> data;
+            try {
+                data = SpreadsheetDataLoader.await(loader.load(source, docId));
+            } catch (RuntimeException e) {
+                LOGGER.info("Data daemon failed to load document {}. {}", docId, e.toString());
+                out.writeByte(DaemonProtocol.ERROR);
+                DocumentCodec.writeString(out, rootMessage(e));
+                return;
+            }
+            out.writeByte(DaemonProtocol.OK);
+            DocumentCodec.writeDocument(out, data);
+        } catch (IOException e) {
+            //Client is gone, it is loading the document by itself then
+            LOGGER.info("Data daemon failed to answer request of document {}. {}", docId, e.toString());
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package data.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry that keeps count, sum, min and max of each metric in memory.
+ * Recording is lock free, so it can be used on hot path by many threads.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+    private final ConcurrentMap<String, Stats> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(String name, long delta) {
+        stats(name, MetricSnapshot.Type.COUNTER).count.add(delta);
+    }
+
+    @Override
+    public void recordNanos(String name, long nanos) {
+        stats(name, MetricSnapshot.Type.TIMER).record(nanos);
+    }
+
+    @Override
+    public void recordValue(String name, long value) {
+        stats(name, MetricSnapshot.Type.HISTOGRAM).record(value);
+    }
+
+    @Override
+    public Map<String, MetricSnapshot> snapshot() {
+        Map<String, MetricSnapshot> result = new TreeMap<>();
+        for (Map.Entry<String, Stats> e : metrics.entrySet()) {
+            result.put(e.getKey(), e.getValue().snapshot());
+        }
+        return result;
+    }
+
+    private Stats stats(String name, MetricSnapshot.Type type) {
+        Stats stats = metrics.get(name);
+        return stats != null ? stats : metrics.computeIfAbsent(name, n -> new Stats(type));
+    }
+
+    private static final class Stats {
+        private final MetricSnapshot.Type type;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        private Stats(MetricSnapshot.Type type) {
+            this.type = type;
+        }
+
+        private void record(long value) {
+            count.increment();
+            sum.add(value);
+            min.accumulate(value);
+            max.accumulate(value);
+        }
+
+        private MetricSnapshot snapshot() {
+            long count = this.count.sum();
+            boolean empty = type == MetricSnapshot.Type.COUNTER || count == 0;
+            return new MetricSnapshot(type, count, sum.sum(), empty ? 0 : min.get(), empty ? 0 : max.get());
+        }
+    }
+}
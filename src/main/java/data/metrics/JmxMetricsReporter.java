@@ -0,0 +1,84 @@
+package data.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Exposes metrics as attributes of "data.metrics:type=GoogleDocsData" MBean.
+ * Each metric is a string attribute with its current value, so the set of attributes grows with registry.
+ */
+public class JmxMetricsReporter implements DynamicMBean {
+    public static final String OBJECT_NAME = "data.metrics:type=GoogleDocsData";
+
+    /**
+     * Registers reporter in platform MBean server.
+     *
+     * @throws Exception when MBean can't be registered
+     */
+    public static void register() throws Exception {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new JmxMetricsReporter(), name);
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        MetricSnapshot metric = Metrics.registry().snapshot().get(attribute);
+        if (metric == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return metric.toString();
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        //Metrics are read only, so there are no writable attributes
+        throw new AttributeNotFoundException("Metric attributes are read only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, MetricSnapshot> snapshot = Metrics.registry().snapshot();
+        AttributeList result = new AttributeList();
+        for (String attribute : attributes) {
+            MetricSnapshot metric = snapshot.get(attribute);
+            if (metric != null) {
+                result.add(new Attribute(attribute, metric.toString()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName), "Metrics have no operations");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Map.Entry<String, MetricSnapshot> e : Metrics.registry().snapshot().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(e.getKey(), String.class.getName(),
+                    e.getValue().getType().name().toLowerCase(Locale.ROOT) + " " + e.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Google docs data loading metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
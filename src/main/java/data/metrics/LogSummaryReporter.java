@@ -0,0 +1,25 @@
+package data.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Writes summary of all metrics to log, by default when JVM is shutting down.
+ */
+public class LogSummaryReporter implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogSummaryReporter.class);
+
+    @Override
+    public void run() {
+        Map<String, MetricSnapshot> snapshot = Metrics.registry().snapshot();
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Google docs data loading metrics:");
+        for (Map.Entry<String, MetricSnapshot> e : snapshot.entrySet()) {
+            LOGGER.info("  {}: {}", e.getKey(), e.getValue());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package data.metrics;
+
+import static java.lang.String.format;
+
+import java.util.Locale;
+
+/**
+ * Value of one metric at the moment of snapshot.
+ */
+public class MetricSnapshot {
+    private static final double NANOS_IN_MILLI = 1_000_000.0;
+
+    /**
+     * Metric type.
+     */
+    public enum Type {
+        COUNTER, TIMER, HISTOGRAM
+    }
+
+    private final Type type;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    public MetricSnapshot(Type type, long count, long sum, long min, long max) {
+        this.type = type;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets events count. For counter it is the counter value.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets sum of recorded values, nanoseconds for timer.
+     *
+     * @return the sum
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : sum / (double) count;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case COUNTER:
+                return String.valueOf(count);
+            case TIMER:
+                return format(Locale.ROOT, "count=%d, total=%.1f ms, mean=%.2f ms, max=%.2f ms", count,
+                        sum / NANOS_IN_MILLI, getMean() / NANOS_IN_MILLI, max / NANOS_IN_MILLI);
+            default:
+                return format(Locale.ROOT, "count=%d, sum=%d, mean=%.1f, min=%d, max=%d", count, sum, getMean(),
+                        min, max);
+        }
+    }
+}
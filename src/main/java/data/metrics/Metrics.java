@@ -0,0 +1,99 @@
+package data.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point for metrics of data loading.
+ * <p>
+ * Reporters are chosen by qaa.metricsReporter system property, comma separated list of:
+ * "log" (default) - summary is written to log at JVM shutdown,
+ * "jmx" - metrics are exposed by {@link JmxMetricsReporter} MBean,
+ * "none" - nothing is reported.
+ */
+public final class Metrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Metrics.class);
+    private static volatile MetricsRegistry registry = new InMemoryMetricsRegistry();
+
+    static {
+        List<String> reporters = Arrays.asList(System.getProperty("qaa.metricsReporter", "log").split("\\s*,\\s*"));
+        if (reporters.contains("log")) {
+            Runtime.getRuntime().addShutdownHook(new Thread(new LogSummaryReporter(), "metrics-log-reporter"));
+        }
+        if (reporters.contains("jmx")) {
+            try {
+                JmxMetricsReporter.register();
+            } catch (Exception e) {
+                LOGGER.info("Failed to register metrics MBean. {}", e.toString());
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Replaces registry, for example with adapter to metrics library of the project.
+     *
+     * @param metricsRegistry the registry
+     */
+    public static void setRegistry(MetricsRegistry metricsRegistry) {
+        registry = metricsRegistry;
+    }
+
+    public static void increment(String name) {
+        registry.increment(name, 1);
+    }
+
+    public static void increment(String name, long delta) {
+        registry.increment(name, delta);
+    }
+
+    public static void recordValue(String name, long value) {
+        registry.recordValue(name, value);
+    }
+
+    public static void recordMillis(String name, long millis) {
+        registry.recordNanos(name, TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Starts timer, that is stopped by returned sample:
+     * {@code Metrics.Sample sample = Metrics.start("name"); try { ... } finally { sample.stop(); }}
+     *
+     * @param name the timer name
+     * @return the running sample
+     */
+    public static Sample start(String name) {
+        return new Sample(name, System.nanoTime());
+    }
+
+    /**
+     * Running timer sample. Its duration is also written to debug log, which works as a simple trace.
+     */
+    public static final class Sample {
+        private final String name;
+        private final long startNanos;
+
+        private Sample(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+
+        public void stop() {
+            long nanos = System.nanoTime() - startNanos;
+            registry.recordNanos(name, nanos);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("{} took {} ms", name, TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package data.metrics;
+
+import java.util.Map;
+
+/**
+ * Registry that is receiving metrics of data loading.
+ * Default one is {@link InMemoryMetricsRegistry}, another implementation can be set by {@link Metrics#setRegistry}.
+ */
+public interface MetricsRegistry {
+    /**
+     * Increments counter.
+     *
+     * @param name  the counter name
+     * @param delta the increment
+     */
+    void increment(String name, long delta);
+
+    /**
+     * Records duration to timer.
+     *
+     * @param name  the timer name
+     * @param nanos the duration in nanoseconds
+     */
+    void recordNanos(String name, long nanos);
+
+    /**
+     * Records value to histogram.
+     *
+     * @param name  the histogram name
+     * @param value the value
+     */
+    void recordValue(String name, long value);
+
+    /**
+     * Gets current values of all metrics.
+     *
+     * @return the metrics by names
+     */
+    Map<String, MetricSnapshot> snapshot();
+}
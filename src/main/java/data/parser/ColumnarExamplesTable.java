@@ -0,0 +1,267 @@
+package data.parser;
+
+import org.jbehave.core.model.ExamplesTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Examples table kept by columns.
+ * <p>
+ * General values are the same for each run, so they are stored once per column instead of once per row.
+ * Headers and values are trimmed the same way as JBehave trims them while parsing table text, headers are interned
+ * for all tables and repeated values are stored once per table. Rows are views that are created on demand.
+ */
+final class ColumnarExamplesTable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ColumnarExamplesTable.class);
+    static final String RUN_NAME = "RunName";
+
+    private final List<String> headers;
+    private final Map<String, Integer> headerIndexes;
+    private final Column[] columns;
+    private final int rowsCount;
+
+    private ColumnarExamplesTable(List<String> headers, Map<String, Integer> headerIndexes, Column[] columns,
+                                  int rowsCount) {
+        this.headers = headers;
+        this.headerIndexes = headerIndexes;
+        this.columns = columns;
+        this.rowsCount = rowsCount;
+    }
+
+    int getRowsCount() {
+        return rowsCount;
+    }
+
+    List<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Gets row view, values are taken from columns when they are read.
+     *
+     * @param row the row index
+     * @return the row by headers
+     */
+    Map<String, String> getRow(int row) {
+        if (row < 0 || row >= rowsCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rowsCount);
+        }
+        return new RowView(row);
+    }
+
+    /**
+     * Gets views of all rows.
+     *
+     * @return the rows
+     */
+    List<Map<String, String>> getRows() {
+        return new RowsView();
+    }
+
+    /*
+     * Values of column, general value is stored once for all rows.
+     */
+    private static final class Column {
+        private final String shared;
+        private final String[] values;
+
+        private Column(String shared, String[] values) {
+            this.shared = shared;
+            this.values = values;
+        }
+
+        private String get(int row) {
+            return values == null ? shared : values[row];
+        }
+    }
+
+    private final class RowsView extends AbstractList<Map<String, String>> implements RandomAccess {
+        @Override
+        public Map<String, String> get(int index) {
+            return getRow(index);
+        }
+
+        @Override
+        public int size() {
+            return rowsCount;
+        }
+    }
+
+    private final class RowView extends AbstractMap<String, String> {
+        private final int row;
+
+        private RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public String get(Object key) {
+            Integer index = headerIndexes.get(key);
+            return index == null ? null : columns[index].get(row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return headerIndexes.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return headers.size();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int column;
+
+                        @Override
+                        public boolean hasNext() {
+                            return column < headers.size();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, String> entry =
+                                    new SimpleImmutableEntry<>(headers.get(column), columns[column].get(row));
+                            column++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return headers.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Collects columns of the table while sheets are parsed.
+     */
+    static final class Builder {
+        private final Map<String, ColumnBuilder> columns = new LinkedHashMap<>();
+
+        /**
+         * Gets list that collects values of the column for each run.
+         *
+         * @param name the column name
+         * @return the values of the column
+         */
+        List<String> values(String name) {
+            return column(name).values;
+        }
+
+        /**
+         * Sets value that is the same for each run.
+         *
+         * @param name  the column name
+         * @param value the value
+         */
+        void share(String name, String value) {
+            column(name).shared = value;
+        }
+
+        /**
+         * Validates that each column has value for each run and builds the table.
+         *
+         * @return the table
+         */
+        ColumnarExamplesTable build() {
+            ColumnBuilder runNames = columns.get(RUN_NAME);
+            int rowsCount = runNames == null ? 0 : runNames.values.size();
+            if (runNames != null) {
+                validate(rowsCount);
+            }
+            LOGGER.info("Converting map representation to rows.");
+            List<String> headers = new ArrayList<>(columns.size());
+            Map<String, Integer> headerIndexes = new HashMap<>(columns.size() * 4 / 3 + 1);
+            Column[] result = new Column[columns.size()];
+            Map<String, String> pool = new HashMap<>();
+            for (Map.Entry<String, ColumnBuilder> e : columns.entrySet()) {
+                String header = e.getKey().trim().intern();
+                headerIndexes.put(header, headers.size());
+                result[headers.size()] = e.getValue().build(pool);
+                headers.add(header);
+            }
+            //Headers that are equal after trimming are rejected by JBehave when rows of table text are read
+            if (headerIndexes.size() != headers.size()) {
+                throw new ExamplesTable.NonDistinctColumnFound(
+                        "ExamplesTable contains non-distinct columns, all columns are: " + String.join(", ", headers));
+            }
+            return new ColumnarExamplesTable(Collections.unmodifiableList(headers), headerIndexes, result, rowsCount);
+        }
+
+        private ColumnBuilder column(String name) {
+            ColumnBuilder column = columns.get(name);
+            if (column == null) {
+                column = new ColumnBuilder();
+                columns.put(name, column);
+            }
+            return column;
+        }
+
+        private void validate(int runsCount) {
+            Map<String, Integer> invalidLabels = new HashMap<>();
+            for (Map.Entry<String, ColumnBuilder> e : columns.entrySet()) {
+                int count = e.getValue().count(runsCount);
+                if (count != runsCount) {
+                    invalidLabels.put(e.getKey(), count);
+                }
+            }
+            if (!invalidLabels.isEmpty()) {
+                LOGGER.info("Invalid labels in google doc data file. Each label should have {} entries.", runsCount);
+                LOGGER.info("Invalid labels: ");
+                for (Map.Entry<String, Integer> entry : invalidLabels.entrySet()) {
+                    LOGGER.info("Label: {}, Entries count: {}", entry.getKey(), entry.getValue());
+                }
+                throw new RuntimeException("Wrong labels entries count");
+            }
+            LOGGER.info("Simple google doc validation passed.");
+        }
+    }
+
+    private static final class ColumnBuilder {
+        private final List<String> values = new ArrayList<>();
+        private String shared;
+
+        private int count(int runsCount) {
+            return (shared == null ? 0 : runsCount) + values.size();
+        }
+
+        private Column build(Map<String, String> pool) {
+            if (shared != null && values.isEmpty()) {
+                return new Column(shared.trim(), null);
+            }
+            String[] result = new String[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                String value = values.get(i).trim();
+                String pooled = pool.putIfAbsent(value, value);
+                result[i] = pooled == null ? value : pooled;
+            }
+            return new Column(null, result);
+        }
+    }
+}
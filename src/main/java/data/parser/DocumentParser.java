@@ -0,0 +1,113 @@
+package data.parser;
+
+import data.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parses sheets of one document one by one, so sheets can be parsed while next ones are still loading.
+ * Each sheet is one run, it becomes one row of the examples table.
+ */
+final class DocumentParser {
+    private final ColumnarExamplesTable.Builder table = new ColumnarExamplesTable.Builder();
+    private final Map<String, String> generalDataMap;
+    private final Function<Map<String, List<String>>, String> nestedTables;
+    private final Consumer<Map<String, String>> rowListener;
+    //Sheets of a document are sharing tag layout, so columns of each plan are resolved once per document
+    private final Map<ParsePlan, List<List<String>>> planColumns = new HashMap<>();
+    private List<String> runNames;
+    private long cellsCount;
+
+    /**
+     * Instantiates a new parser of one document.
+     *
+     * @param generalDataMap the general values added to each run, or null
+     * @param nestedTables   the function that stores nested table and returns its reference
+     * @param rowListener    the listener of parsed rows, or null
+     */
+    DocumentParser(Map<String, String> generalDataMap, Function<Map<String, List<String>>, String> nestedTables,
+                   Consumer<Map<String, String>> rowListener) {
+        this.generalDataMap = generalDataMap;
+        this.nestedTables = nestedTables;
+        this.rowListener = rowListener;
+    }
+
+    /**
+     * Parses sheet to the next run.
+     *
+     * @param title   the sheet title, it is the run name
+     * @param columns the columns of the sheet
+     */
+    void addSheet(String title, List<List<String>> columns) {
+        if (columns.size() != 3) {
+            throw new RuntimeException("Wrong columns count in google spreadsheet");
+        }
+        if (runNames == null) {
+            /*
+             * Adding first column with run names manually
+             * This column is needed only to know which data we are using in current test run on report portal
+             */
+            runNames = table.values(ColumnarExamplesTable.RUN_NAME);
+            //General values are the same for each run, so they are stored once
+            if (generalDataMap != null) {
+                for (Map.Entry<String, String> e : generalDataMap.entrySet()) {
+                    if (!ColumnarExamplesTable.RUN_NAME.equals(e.getKey())) {
+                        table.share(e.getKey(), e.getValue());
+                    }
+                }
+            }
+        }
+        runNames.add(title);
+        //3rd column contains tags for parsing, 2nd column contains values for them
+        List<String> tags = columns.get(2);
+        cellsCount += tags.size();
+        ParsePlan plan = ParsePlan.of(tags);
+        List<List<String>> targets = planColumns.get(plan);
+        if (targets == null) {
+            targets = new ArrayList<>(plan.getColumns().size());
+            for (String column : plan.getColumns()) {
+                targets.add(table.values(column));
+            }
+            planColumns.put(plan, targets);
+        }
+        //Nested structures are saved as separate tables, and the column contains references to them
+        plan.apply(columns.get(1), targets, nestedTables);
+        if (rowListener != null) {
+            rowListener.accept(lastRow(title, plan.getColumns(), targets));
+        }
+    }
+
+    /**
+     * Validates collected runs and builds the table.
+     *
+     * @return the table
+     */
+    ColumnarExamplesTable build() {
+        Metrics.increment("parser.rows", runNames == null ? 0 : runNames.size());
+        Metrics.increment("parser.cells", cellsCount);
+        return table.build();
+    }
+
+    private Map<String, String> lastRow(String title, List<String> columns, List<List<String>> targets) {
+        Map<String, String> row = new LinkedHashMap<>();
+        row.put(ColumnarExamplesTable.RUN_NAME, title.trim());
+        if (generalDataMap != null) {
+            for (Map.Entry<String, String> e : generalDataMap.entrySet()) {
+                if (!ColumnarExamplesTable.RUN_NAME.equals(e.getKey())) {
+                    row.put(e.getKey().trim(), e.getValue().trim());
+                }
+            }
+        }
+        for (int c = 0; c < columns.size(); c++) {
+            List<String> values = targets.get(c);
+            row.put(columns.get(c).trim(), values.get(values.size() - 1).trim());
+        }
+        return row;
+    }
+}
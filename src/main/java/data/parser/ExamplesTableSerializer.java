@@ -0,0 +1,147 @@
+package data.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes column map representation of examples table as JBehave table text.
+ * <p>
+ * Table
+ * <pre>
+ * |RunName  |Variable      |
+ * |firstRun |firstVariable |
+ * </pre>
+ * is written from map {"RunName": ["firstRun"], "Variable": ["firstVariable"]}.
+ * <p>
+ * Line breaks inside of cells are written as spaces. JBehave can't escape value separator, so when any cell
+ * contains '|' the table is written with another separator declared in table properties.
+ */
+public final class ExamplesTableSerializer {
+    private static final char DEFAULT_SEPARATOR = '|';
+    private static final char[] ALTERNATIVE_SEPARATORS = {'\u00A6', '\u2016', '\u00A4', '\u2502'};
+
+    private ExamplesTableSerializer() {
+    }
+
+    /**
+     * Serializes table to string.
+     *
+     * @param columns the table columns, keys are headers
+     * @return the table text
+     */
+    public static String serialize(Map<String, List<String>> columns) {
+        TableLayout layout = TableLayout.of(columns);
+        StringBuilder result = new StringBuilder(layout.length);
+        try {
+            write(columns, layout, result);
+        } catch (IOException e) {
+            //StringBuilder is never throwing IOException
+            throw new IllegalStateException(e);
+        }
+        return result.toString();
+    }
+
+    private static void write(Map<String, List<String>> columns, TableLayout layout, Appendable out)
+            throws IOException {
+        char separator = layout.separator;
+        if (separator != DEFAULT_SEPARATOR) {
+            out.append("{headerSeparator=").append(separator)
+                    .append(", valueSeparator=").append(separator).append("}\n");
+        }
+        List<List<String>> values = new ArrayList<>(columns.size());
+        for (Map.Entry<String, List<String>> column : columns.entrySet()) {
+            out.append(separator);
+            appendCell(column.getKey(), out);
+            values.add(column.getValue());
+        }
+        out.append(separator).append('\n');
+        //Then we are iterating trough Lists of values and with each iteration we are writing 1 row of data.
+        for (int row = 0; row < layout.rowsCount; row++) {
+            for (List<String> column : values) {
+                out.append(separator);
+                appendCell(column.get(row), out);
+            }
+            out.append(separator).append('\n');
+        }
+    }
+
+    private static void appendCell(String value, Appendable out) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '\r') {
+                //"\r\n" is written as one space
+                if (i + 1 < length && value.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                out.append(' ');
+            } else if (c == '\n') {
+                out.append(' ');
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    /*
+     * Rows count, expected text length and separator, collected with one scan of the table.
+     */
+    private static final class TableLayout {
+        private final int rowsCount;
+        private final int length;
+        private final char separator;
+
+        private TableLayout(int rowsCount, int length, char separator) {
+            this.rowsCount = rowsCount;
+            this.length = length;
+            this.separator = separator;
+        }
+
+        private static TableLayout of(Map<String, List<String>> columns) {
+            int rowsCount = columns.isEmpty() ? 0 : columns.values().iterator().next().size();
+            long length = 0;
+            boolean containsPipe = false;
+            for (Map.Entry<String, List<String>> column : columns.entrySet()) {
+                length += column.getKey().length() + 1;
+                containsPipe |= column.getKey().indexOf(DEFAULT_SEPARATOR) >= 0;
+                for (String value : column.getValue()) {
+                    if (value != null) {
+                        length += value.length() + 1;
+                        containsPipe |= value.indexOf(DEFAULT_SEPARATOR) >= 0;
+                    }
+                }
+            }
+            length += 2L * (rowsCount + 1);
+            char separator = containsPipe ? chooseSeparator(columns) : DEFAULT_SEPARATOR;
+            return new TableLayout(rowsCount, (int) Math.min(length + 64, Integer.MAX_VALUE - 8), separator);
+        }
+
+        private static char chooseSeparator(Map<String, List<String>> columns) {
+            for (char candidate : ALTERNATIVE_SEPARATORS) {
+                if (!containsChar(columns, candidate)) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("Failed to choose table separator, all of them are used in values");
+        }
+
+        private static boolean containsChar(Map<String, List<String>> columns, char c) {
+            for (Map.Entry<String, List<String>> column : columns.entrySet()) {
+                if (column.getKey().indexOf(c) >= 0) {
+                    return true;
+                }
+                for (String value : column.getValue()) {
+                    if (value != null && value.indexOf(c) >= 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,63 +1,79 @@
 package data.parser;
 
-import static java.lang.String.format;
-
-import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.services.sheets.v4.Sheets;
-import com.google.api.services.sheets.v4.model.Sheet;
-import com.google.api.services.sheets.v4.model.Spreadsheet;
-import com.google.api.services.sheets.v4.model.ValueRange;
+import data.metrics.Metrics;
 import data.provider.GoogleDocsDataProvider;
+import data.provider.SheetRangePlanner;
+import data.provider.SpreadsheetDataLoader;
+import data.source.DataSources;
+import data.source.SpreadsheetDataSource;
 import org.jbehave.core.model.ExamplesTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
-import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.security.GeneralSecurityException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class GoogleDocsDataParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(GoogleDocsDataParser.class);
-    private Map<String, List<String>> temporaryMapForNestedStructure;
-    private String currentNestedStructureName;
-    private Map<String, List<List<String>>> generalData = null;
-    private Integer counter = 0;
+    //Unique for each JVM, so forks are not sharing temporary table files that are deleted on exit
+    private static final String RUN_ID = UUID.randomUUID().toString();
+    private static final String DEFAULT_GENERAL_FILE = "17cjvuNclg87xMUMAYU7NFsl3wDGfRF591HRZ75z-X3o";
+    private final SpreadsheetDataLoader loader = SpreadsheetDataLoader.getInstance();
+    private final NestedTableStore nestedTables = NestedTableStore.getInstance();
+    //Documents are streamed sheet by sheet when tall sheets are loaded by pages
+    private final boolean streaming = SheetRangePlanner.getInstance().getPageRows() > 0;
+    private final AtomicReference<CompletableFuture<Map<String, String>>> generalDataMap = new AtomicReference<>();
+    private final ConcurrentMap<String, CompletableFuture<ColumnarExamplesTable>> prefetchedTables =
+            new ConcurrentHashMap<>();
+    //Streams skip in-flight loads of the loader, so concurrent stories are joined here by parsed table
+    private final ConcurrentMap<String, CompletableFuture<ColumnarExamplesTable>> streamingTables =
+            new ConcurrentHashMap<>();
 
     /**
      * Gets examples table.
+     * If the document was prefetched then the prefetched data is used, waiting only for its remaining part.
      *
      * @param provider                DataProviderObject that already contains spreadsheet Id.
      * @param absolutePathToResources the absolute path to resources
      * @return the examples table object parsed from google spreadsheet
      */
     public ExamplesTable getExamplesTable(GoogleDocsDataProvider provider, String absolutePathToResources) {
-        Map<String, List<List<String>>> spreedSheetsData = getSpreadsheetData(provider);
-        provider.setDocId(System.getProperty("qaa.generalFile", "17cjvuNclg87xMUMAYU7NFsl3wDGfRF591HRZ75z-X3o"));
-        if (generalData == null) {
-            LOGGER.info("General file was no loaded yet. Loading general data file with id {}",
-                    System.getProperty("qaa.generalFile"));
-            generalData = getSpreadsheetData(provider);
-        } else {
-            LOGGER.info("General data file already loaded.");
-        }
-        ExamplesTable generalDataTable = parseDataToExampleTable(generalData, absolutePathToResources, null);
-        Map<String, String> generalDataMap = generalDataTable.getRow(0);
+        return getExamplesTable(DataSources.forProvider(provider), provider.getDocId(), absolutePathToResources);
+    }
+
+    /**
+     * Gets examples table from the given data source, for example from local export.
+     *
+     * @param source                  the data source of the document and general data file
+     * @param docId                   the spreadsheet id
+     * @param absolutePathToResources the absolute path to resources
+     * @return the examples table object parsed from the document
+     */
+    public ExamplesTable getExamplesTable(SpreadsheetDataSource source, String docId, String absolutePathToResources) {
+        ColumnarExamplesTable table = takePrefetchedTable(docId);
         ExamplesTable et;
         try {
-            et = parseDataToExampleTable(spreedSheetsData, absolutePathToResources, generalDataMap);
+            if (table == null) {
+                table = SpreadsheetDataLoader.await(loadTable(source, docId, absolutePathToResources));
+            }
+            et = toExamplesTable(table);
         } catch (Throwable throwable) {
             LOGGER.info("Error during reading examples table", throwable);
             throw new RuntimeException(throwable);
@@ -65,14 +81,236 @@ public class GoogleDocsDataParser {
         return et;
     }
 
+    /**
+     * Streams document from the given data source, each sheet is parsed as soon as it is loaded and
+     * its row is passed to the listener before next sheets are loaded.
+     *
+     * @param source                  the data source of the document and general data file
+     * @param docId                   the spreadsheet id
+     * @param absolutePathToResources the absolute path to resources
+     * @param rowListener             the listener of parsed rows, it is called on loader thread
+     * @return the future with examples table of all rows
+     */
+    public CompletableFuture<ExamplesTable> streamExamplesTable(SpreadsheetDataSource source, String docId,
+                                                                String absolutePathToResources,
+                                                                Consumer<Map<String, String>> rowListener) {
+        return streamTable(source, docId, absolutePathToResources, rowListener).thenApply(this::toExamplesTable);
+    }
+
+    /**
+     * Starts loading and parsing of documents in background, so stories are not waiting for them later.
+     * Prefetched table is kept until {@link #getExamplesTable} takes it, later calls load the document again.
+     * Failed prefetch is only logged, then the document is loaded again by {@link #getExamplesTable}.
+     *
+     * @param provider                DataProviderObject that is used for loading
+     * @param docIds                  the spreadsheet ids that will be needed by stories
+     * @param absolutePathToResources the absolute path to resources
+     */
+    public void prefetch(GoogleDocsDataProvider provider, Collection<String> docIds, String absolutePathToResources) {
+        LOGGER.info("Prefetching {} documents.", docIds.size());
+        SpreadsheetDataSource source = DataSources.forProvider(provider);
+        //General data is needed for all documents, so it is requested first
+        getGeneralDataMap(source, absolutePathToResources);
+        for (String docId : docIds) {
+            CompletableFuture<ColumnarExamplesTable> table =
+                    prefetchedTables.computeIfAbsent(docId, id -> loadTable(source, id, absolutePathToResources));
+            table.whenComplete((ignored, throwable) -> {
+                if (throwable != null) {
+                    LOGGER.info("Failed to prefetch document {}. {}", docId, throwable.toString());
+                    prefetchedTables.remove(docId, table);
+                }
+            });
+        }
+    }
+
+    /**
+     * Starts prefetch of documents listed in system properties:
+     * qaa.prefetchDocs with comma separated spreadsheet ids
+     * and qaa.prefetchManifest with path to file that contains one spreadsheet id per line ('#' starts comment).
+     *
+     * @param provider                DataProviderObject that is used for loading
+     * @param absolutePathToResources the absolute path to resources
+     */
+    public void prefetchConfigured(GoogleDocsDataProvider provider, String absolutePathToResources) {
+        Set<String> docIds = new LinkedHashSet<>();
+        for (String docId : System.getProperty("qaa.prefetchDocs", "").split(",")) {
+            if (!docId.trim().isEmpty()) {
+                docIds.add(docId.trim());
+            }
+        }
+        String manifest = System.getProperty("qaa.prefetchManifest");
+        if (manifest != null) {
+            try {
+                for (String line : Files.readAllLines(Paths.get(manifest), StandardCharsets.UTF_8)) {
+                    String docId = line.split("#", 2)[0].trim();
+                    if (!docId.isEmpty()) {
+                        docIds.add(docId);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to read prefetch manifest {}", manifest, e);
+                throw new RuntimeException("Failed to read prefetch manifest", e);
+            }
+        }
+        prefetch(provider, docIds, absolutePathToResources);
+    }
+
+    /**
+     * Parses already loaded document data to examples table.
+     *
+     * @param spreedSheetsData        the data of all sheets of the document
+     * @param generalDataMap          the general values added to each run, or null
+     * @param absolutePathToResources the absolute path to resources
+     * @return the examples table
+     */
+    public ExamplesTable parseExamplesTable(
+            Map<String, List<List<String>>> spreedSheetsData,
+            Map<String, String> generalDataMap,
+            String absolutePathToResources) {
+        return toExamplesTable(parseDocument(spreedSheetsData, absolutePathToResources, generalDataMap));
+    }
+
+    /**
+     * Parses already loaded general data file to the values that are added to each run.
+     *
+     * @param generalData             the data of all sheets of the general data file
+     * @param absolutePathToResources the absolute path to resources
+     * @return the general values by their labels
+     */
+    public Map<String, String> parseGeneralData(
+            Map<String, List<List<String>>> generalData,
+            String absolutePathToResources) {
+        return new LinkedHashMap<>(parseDocument(generalData, absolutePathToResources, null).getRow(0));
+    }
+
+    /*
+     * Prefetched table is removed when it is used, so it is not kept in memory till the end of the run.
+     * Failed prefetch is not an error, the document is loaded again by the caller.
+     *
+     * @return the table or null when document was not prefetched or prefetch failed
+     */
+    private ColumnarExamplesTable takePrefetchedTable(String docId) {
+        CompletableFuture<ColumnarExamplesTable> prefetched = prefetchedTables.get(docId);
+        if (prefetched == null) {
+            return null;
+        }
+        LOGGER.info("Using prefetched data of document {}. Ready: {}", docId, prefetched.isDone());
+        try {
+            return SpreadsheetDataLoader.await(prefetched);
+        } catch (RuntimeException e) {
+            LOGGER.info("Prefetch of document {} failed, loading it again. {}", docId, e.toString());
+            return null;
+        } finally {
+            prefetchedTables.remove(docId, prefetched);
+        }
+    }
+
+    /*
+     * Document and general file are loading at the same time,
+     * then the document is parsed by the thread that completed loading.
+     */
+    private CompletableFuture<ColumnarExamplesTable> loadTable(
+            SpreadsheetDataSource source, String docId, String absolutePathToResources) {
+        if (streaming) {
+            return joinStreamTable(source, docId, absolutePathToResources);
+        }
+        return loader.load(source, docId).thenCombine(
+                getGeneralDataMap(source, absolutePathToResources),
+                (data, generalData) -> parseDocument(data, absolutePathToResources, generalData));
+    }
+
+    /*
+     * Stories that are asking for the document while it is streaming are getting the same table,
+     * so the document is fetched once. Table is removed before completion, the same as loads of the loader.
+     */
+    private CompletableFuture<ColumnarExamplesTable> joinStreamTable(
+            SpreadsheetDataSource source, String docId, String absolutePathToResources) {
+        CompletableFuture<ColumnarExamplesTable> created = new CompletableFuture<>();
+        CompletableFuture<ColumnarExamplesTable> existing = streamingTables.putIfAbsent(docId, created);
+        if (existing != null) {
+            LOGGER.info("Document {} is already streaming. Waiting for the same table.", docId);
+            return existing;
+        }
+        streamTable(source, docId, absolutePathToResources, null).whenComplete((table, throwable) -> {
+            streamingTables.remove(docId, created);
+            if (throwable != null) {
+                created.completeExceptionally(throwable);
+            } else {
+                created.complete(table);
+            }
+        });
+        return created;
+    }
+
+    /*
+     * Sheets are parsed on the loader thread while next pages are loading. General values are needed
+     * for the first sheet, so streaming starts when general data is ready.
+     */
+    private CompletableFuture<ColumnarExamplesTable> streamTable(
+            SpreadsheetDataSource source, String docId, String absolutePathToResources,
+            Consumer<Map<String, String>> rowListener) {
+        return getGeneralDataMap(source, absolutePathToResources).thenCompose(generalData -> {
+            DocumentParser parser = new DocumentParser(generalData,
+                    nestedTable -> storeNestedTable(nestedTable, absolutePathToResources), rowListener);
+            return loader.stream(source, docId, parser::addSheet).thenApply(ignored -> parser.build());
+        });
+    }
+
     /*
-     * In this method we are parsing google doc data to less complicated format and converting it to Examples table.
+     * General data is loaded and parsed only once, its first row is reused for all documents.
+     * Threads that are asking for it during the load are getting the same future.
+     */
+    private CompletableFuture<Map<String, String>> getGeneralDataMap(
+            SpreadsheetDataSource source, String absolutePathToResources) {
+        CompletableFuture<Map<String, String>> created = new CompletableFuture<>();
+        //Failed load may reset the reference between get and compareAndSet, so trying until one of them wins
+        while (!generalDataMap.compareAndSet(null, created)) {
+            CompletableFuture<Map<String, String>> result = generalDataMap.get();
+            if (result != null) {
+                LOGGER.info("General data file already loaded.");
+                return result;
+            }
+        }
+        String generalFileId = System.getProperty("qaa.generalFile", DEFAULT_GENERAL_FILE);
+        LOGGER.info("General file was no loaded yet. Loading general data file with id {}", generalFileId);
+        loader.load(source, generalFileId)
+                .thenApply(generalData -> parseGeneralData(generalData, absolutePathToResources))
+                .whenComplete((data, throwable) -> {
+                    if (throwable != null) {
+                        //Failed load is not cached, so the next document will try again
+                        generalDataMap.compareAndSet(created, null);
+                        created.completeExceptionally(throwable);
+                    } else {
+                        created.complete(data);
+                    }
+                });
+        return created;
+    }
+
+    //Table is built from row views directly, so JBehave doesn't need to parse it from text
+    private ExamplesTable toExamplesTable(ColumnarExamplesTable table) {
+        return table.getRowsCount() == 0 ? new ExamplesTable("") : new ExamplesTable("").withRows(table.getRows());
+    }
+
+    /*
+     * In this method we are parsing google doc data to less complicated format.
      *
      * @param spreedSheetsData
-     * @return Examples table with data from google docs
+     * @return Columnar examples table with data from google docs
      */
+    private ColumnarExamplesTable parseDocument(
+            Map<String, List<List<String>>> spreedSheetsData,
+            String absolutePathToResources,
+            Map<String, String> generalDataMap) {
+        Metrics.Sample sample = Metrics.start("parser.parseDocument");
+        try {
+            return parseSheets(spreedSheetsData, absolutePathToResources, generalDataMap);
+        } finally {
+            sample.stop();
+        }
+    }
 
-    private ExamplesTable parseDataToExampleTable(
+    private ColumnarExamplesTable parseSheets(
             Map<String, List<List<String>>> spreedSheetsData,
             String absolutePathToResources,
             Map<String, String> generalDataMap) {
@@ -84,13 +322,12 @@ public class GoogleDocsDataParser {
            |firstRun |firstVariable |
            |secondRun|secondVariable|
 
-           is equals to that map:
+           is kept by columns, the same as in that map:
            {
                "RunName": ["firstRun", "secondRun"],
                "Variable":["firstVariable","secondVariable"]
            }
          */
-        Map<String, List<String>> exampleTableMapRepresentation = new HashMap<>();
         /*
             We are expecting that google sheet is contains of 3 different columns
             first column is a human readable label
@@ -103,255 +340,75 @@ public class GoogleDocsDataParser {
                 throw new RuntimeException("Wrong columns count in google spreadsheet");
             }
         });
-
+        DocumentParser parser = new DocumentParser(generalDataMap,
+                nestedTable -> storeNestedTable(nestedTable, absolutePathToResources), null);
         /*
          * Each cycle will parse 1 sheet from google document
          */
         for (Map.Entry<String, List<List<String>>> entry : spreedSheetsData.entrySet()) {
-            String key = entry.getKey();
-            List<List<String>> labels = entry.getValue();
-            /*
-             * Adding first column with run names manually
-             * This column is needed only to know which data we are using in current test run on report portal
-             */
-            if (!exampleTableMapRepresentation.containsKey("RunName")) {
-                exampleTableMapRepresentation.put("RunName", new ArrayList<>());
-            }
-            exampleTableMapRepresentation.get("RunName").add(key);
-
-            if (generalDataMap != null) {
-                for (Map.Entry<String, String> e : generalDataMap.entrySet()) {
-                    String valueLabel = e.getKey();
-                    String value = e.getValue();
-
-                    if (!exampleTableMapRepresentation.containsKey(valueLabel)) {
-                        exampleTableMapRepresentation.put(valueLabel, new ArrayList<>());
-                    }
-                    if (!"RunName".equals(valueLabel)) {
-                        exampleTableMapRepresentation.get(valueLabel).add(value);
-                    }
-                }
-            }
-            //Getting 3rd column that contains tags for parsing
-            List<String> get = labels.get(2);
-            for (int i = 0; i < get.size(); i++) {
-                //Processing each tag in the column.
-                String label = get.get(i);
-                //If current tag is empty or starts with '!' - we are ignoring that tag
-                if (!label.startsWith("!") && !"".equals(label) && !label.startsWith("@")) {
-                    //If our map doesn't already contain current tag - we are initializing new Array for that tag
-                    if (!exampleTableMapRepresentation.containsKey(label)) {
-                        exampleTableMapRepresentation.put(label, new ArrayList<>());
-                    }
-                    //And after initialization we are adding value from 2nd column to that array for that tag
-                    exampleTableMapRepresentation.get(label).add(
-                            labels.get(1).get(i).replaceAll("\n", " "));
-                    //If tag starts with @ then we are processing that tag as a nested structure
-                } else if (label.startsWith("@")) {
-                    Map<String, List<String>> result = proceedNestedStructureRow(label, labels, i);
-                    if (result != null) {
-                        //When we are processed whole structure then we are writing the result to the file
-                        String createdFilePath = createTempTableFile(result, absolutePathToResources);
-                        if (!exampleTableMapRepresentation.containsKey(currentNestedStructureName)) {
-                            exampleTableMapRepresentation.put(currentNestedStructureName, new ArrayList<>());
-                        }
-                        createdFilePath = createdFilePath.replace("\\", "/");
-                        LOGGER.info("Temporary table path: {}", "file:///" + createdFilePath);
-                        exampleTableMapRepresentation.get(currentNestedStructureName).add("file:///" + createdFilePath);
-                    }
-                }
-            }
+            parser.addSheet(entry.getKey(), entry.getValue());
         }
-        //When we processed whole google document - we are converting created map to string
-        String exampleTableData = convertMapRepresentationToString(exampleTableMapRepresentation);
-        return new ExamplesTable(exampleTableData);
+        return parser.build();
     }
 
-    private Map<String, List<String>> proceedNestedStructureRow(String label, List<List<String>> labels, Integer i) {
-        //If its start of the structure - we are initializing new map for that structure
-        // and adding table headers to that map
-        if (label.contains("@startNestedStructure ")) {
-            currentNestedStructureName = label.replace("@startNestedStructure", "");
-            temporaryMapForNestedStructure = new HashMap<>();
-            temporaryMapForNestedStructure.put("label", new ArrayList<>());
-            temporaryMapForNestedStructure.put("type", new ArrayList<>());
-            temporaryMapForNestedStructure.put("value", new ArrayList<>());
-            return null;
+    // @return reference to nested table that JBehave is loading as examples table
+    private String storeNestedTable(Map<String, List<String>> result, String absolutePathToResources) {
+        String data = ExamplesTableSerializer.serialize(result);
+        Metrics.increment("parser.nestedTables");
+        if (nestedTables.isServedFromMemory()) {
+            return nestedTables.put(data);
         }
+        String reference = createTempTableFile(data, absolutePathToResources).toUri().toString();
+        LOGGER.info("Temporary table path: {}", reference);
+        return reference;
+    }
 
-        //If its end of the structure we are returning map for further processing
-        if ("@endNestedStructure".equals(label)) {
-            return temporaryMapForNestedStructure;
+    // @return created file
+    private Path createTempTableFile(String data, String absolutePathToResources) {
+        Metrics.Sample sample = Metrics.start("parser.createTempTableFile");
+        try {
+            return writeTempTableFile(data, absolutePathToResources);
+        } finally {
+            sample.stop();
         }
-        //If its just normal row of nested structure
-        label = label.replace("@", "");
-        List<String> dataArray = Arrays.asList(label.split("#"));
-        //Adding label from parsing tags
-        temporaryMapForNestedStructure.get("label").add(dataArray.get(1));
-        //Adding type from parsing tags
-        temporaryMapForNestedStructure.get("type").add(dataArray.get(0));
-        //Adding value from second column
-        temporaryMapForNestedStructure.get("value").add(labels.get(1).get(i));
-
-        return null;
     }
 
-    // @return path to created file
-    private String createTempTableFile(Map<String, List<String>> result, String absolutePathToResources) {
-        //Converting map representation to string
-        String data = convertMapRepresentationToString(result);
+    private Path writeTempTableFile(String data, String absolutePathToResources) {
         //Checking that needed directory exist
-        String filePath = absolutePathToResources + "\\data\\tables\\";
-        File fileP = new File(filePath);
-        if (!fileP.exists()) {
-            LOGGER.error("Directories created: {}", fileP.mkdirs());
+        Path directory = Paths.get(absolutePathToResources, "data", "tables");
+        if (!Files.exists(directory)) {
+            LOGGER.error("Directories created: {}", directory.toFile().mkdirs());
         }
-        //Generating new name for the file
-        String fileName = "testData" + UUID.randomUUID().toString() + ".table";
+        //File name is built from table hash, so the same table is written only once by this JVM
+        String fileName = "testData" + RUN_ID + "-" + NestedTableStore.hash(data) + ".table";
         LOGGER.info("File name generated. {}", fileName);
-        Path file = Paths.get(filePath + fileName);
+        Path file = directory.resolve(fileName);
         try {
-            File f = new File(filePath + "\\" + fileName);
-            //deleting old file if it exist
-            if (f.exists()) {
-                LOGGER.info("File deleted: {}", f.delete());
-            }
-            //Writing data to new file
-            LOGGER.info("Writing data to file");
-            Files.write(file, Collections.singletonList(data), StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
-            LOGGER.info("File created.");
-        } catch (IOException e) {
-            LOGGER.error("Failed to create temp table.", e);
-            throw new RuntimeException("Failed to create temporary table", e);
-        }
-        return absolutePathToResources + "/data/tables/" + fileName;
-    }
-
-    private String convertMapRepresentationToString(Map<String, List<String>> dataToConvert) {
-        if (dataToConvert.get("RunName") != null) {
-            Integer runsCount = dataToConvert.get("RunName").size();
-            Map<String, Integer> invalidLabels = new HashMap<>();
-            for (Map.Entry<String, List<String>> e : dataToConvert.entrySet()) {
-                String key = e.getKey();
-                List<String> value = e.getValue();
-
-                if (value.size() != runsCount) {
-                    invalidLabels.put(key, value.size());
-                }
-            }
-            if (!invalidLabels.isEmpty()) {
-                LOGGER.info("Invalid labels in google doc data file. Each label should have {} entries.", runsCount);
-                LOGGER.info("Invalid labels: ");
-                for (Map.Entry<String, Integer> entry : invalidLabels.entrySet()) {
-                    String label = entry.getKey();
-                    Integer entiresCount = entry.getValue();
-                    LOGGER.info("Label: {}, Entries count: {}", label, entiresCount);
-                }
-                throw new RuntimeException("Wrong labels entries count");
+            if (Files.exists(file)) {
+                LOGGER.info("Same table is already written to file.");
             } else {
-                LOGGER.info("Simple google doc validation passed.");
-            }
-        }
-
-        LOGGER.info("Converting map representation to string.");
-        String result = "";
-        /*
-         * first row is a row of headers
-         * and if we have, for example, that map:
-         * {
-               "RunName": ["firstRun", "secondRun"],
-               "Variable":["firstVariable","secondVariable"]
-           }
-         *
-         * Then after this step we will receive String with data:
-         *  |RunName  |Variable      |
-         */
-
-        for (String header : dataToConvert.keySet()) {
-            result += "|" + header;
-        }
-        result += "|\n";
-        //Then we are iterating trough Lists of values and with each iteration we are writing 1 row of data.
-        for (int i = 0; i < dataToConvert.values().iterator().next().size(); i++) {
-            for (Map.Entry<String, List<String>> entry : dataToConvert.entrySet()) {
-                String s = entry.getKey();
-                List<String> strings = entry.getValue();
-
-                result += "|" + strings.get(i);
-            }
-            result += "|\n";
-        }
-        return result;
-    }
-
-    /*
-     * In this method we are retrieving data from google docs.
-     *
-     * @param Data provider
-     * @return Map with data from Excel file
-     */
-    private Map<String, List<List<String>>> getSpreadsheetData(GoogleDocsDataProvider provider) {
-        Map<String, List<List<String>>> result;
-        LOGGER.info("Loading data from google docs.");
-        LOGGER.info("Loaded files count: {}", ++counter);
-        try {
-            try {
-                result = getData(provider);
-            } catch (GoogleJsonResponseException | SocketTimeoutException e) {
-                LOGGER.info("Failed to load data. {}", e.toString());
-                Integer pauseLenght = 960;
-                LOGGER.info("Waiting {} seconds to bypass google cloud platform quotas", pauseLenght);
+                LOGGER.info("Writing data to file");
+                //Writing to temp file first, so stories are never reading half written table
+                Path tempFile = Files.createTempFile(directory, fileName, ".tmp");
                 try {
-                    for (Integer i = 1; i <= pauseLenght; i++) {
-                        Thread.sleep(1000L);
-                        if (i%5==0){
-                            LOGGER.info("Waiting {} out of {} sec", i, pauseLenght);
-                        }
+                    Files.write(tempFile, data.getBytes(StandardCharsets.UTF_8));
+                    try {
+                        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
                     }
-                    provider.authorize();
-                } catch (InterruptedException er) {
-                    LOGGER.info("{}", er);
+                } finally {
+                    Files.deleteIfExists(tempFile);
                 }
-                LOGGER.info("Waiting completed.");
-                result = getData(provider);
-            }
-        } catch (IOException | GeneralSecurityException e) {
-            LOGGER.info("Failed to load data. {}", e.toString());
-            throw new RuntimeException("Failed to retrieve data from google docs", e);
-        }
-        LOGGER.info("Data loaded.");
-        try {
-            LOGGER.info("Waiting 15 sec to bypass google cloud platform quotas.");
-            Thread.sleep(15000L);
-        } catch (InterruptedException e) {
-            LOGGER.info("Failed to load data. {}", e.toString());
-        }
-        return result;
-    }
-
-    private Map<String, List<List<String>>> getData(GoogleDocsDataProvider provider)
-            throws IOException, GeneralSecurityException {
-        Map<String, List<List<String>>> result = new HashMap<>();
-        Sheets service = provider.getSheetsService();
-        LOGGER.info("Getting sheets data.");
-        Spreadsheet spreadsheet = service.spreadsheets().get(provider.getDocId()).execute();
-        LOGGER.info("Got sheets data.");
-        for (Sheet sheet : spreadsheet.getSheets()) {
-            String sheetTitle = sheet.getProperties().getTitle();
-            // If sheet name starts with '!' char then we are ignoring that list
-            if (!sheetTitle.startsWith("!")) {
-                String range = format("%s!A:Z", sheetTitle);
-                ValueRange response = service
-                        .spreadsheets()
-                        .values()
-                        .get(provider.getDocId(), range)
-                        .setMajorDimension("COLUMNS")
-                        .execute();
-                // Google docs always returning List<List<String>> from Excel sheets,
-                // so in my opinion it's okay to cast it like that
-                result.put(sheetTitle, (List<List<String>>) (Object) response.getValues());
+                //Temporary tables are needed only while stories of this JVM are running
+                file.toFile().deleteOnExit();
+                LOGGER.info("File created.");
             }
+        } catch (IOException e) {
+            LOGGER.error("Failed to create temp table.", e);
+            throw new RuntimeException("Failed to create temporary table", e);
         }
-        return result;
+        return file;
     }
 }
@@ -0,0 +1,114 @@
+package data.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory content-addressed store of nested structure tables.
+ * <p>
+ * Each table is saved under reference built from hash of its text, so identical structures are stored once.
+ * References are used as examples table values and resolved by {@link NestedTableStoryLoader}, which should
+ * wrap story loader of JBehave configuration.
+ * <p>
+ * Mode is taken from qaa.nestedTablesMode system property: "memory" (default) or "file". Tables are written
+ * to files anyway while {@link NestedTableStoryLoader} is not created, because JBehave can't resolve
+ * in-memory references without it.
+ */
+public class NestedTableStore {
+    public static final String REFERENCE_PREFIX = "nested-table:";
+    private static final Logger LOGGER = LoggerFactory.getLogger(NestedTableStore.class);
+    private static final NestedTableStore INSTANCE = new NestedTableStore(
+            !"file".equalsIgnoreCase(System.getProperty("qaa.nestedTablesMode", "memory")));
+
+    private final ConcurrentMap<String, String> tables = new ConcurrentHashMap<>();
+    private final boolean memoryMode;
+    private volatile boolean loaderInstalled;
+    private volatile boolean fallbackReported;
+
+    public static NestedTableStore getInstance() {
+        return INSTANCE;
+    }
+
+    NestedTableStore(boolean memoryMode) {
+        this.memoryMode = memoryMode;
+    }
+
+    /**
+     * Checks that tables should be kept in memory rather than written to files.
+     *
+     * @return true when memory mode is on and JBehave is able to load tables from memory
+     */
+    public boolean isServedFromMemory() {
+        if (memoryMode && !loaderInstalled && !fallbackReported) {
+            fallbackReported = true;
+            LOGGER.warn("Nested tables are written to files, because {} is not used by JBehave configuration.",
+                    NestedTableStoryLoader.class.getSimpleName());
+        }
+        return memoryMode && loaderInstalled;
+    }
+
+    /**
+     * Saves table text.
+     *
+     * @param tableText the table text
+     * @return the reference to the table
+     */
+    public String put(String tableText) {
+        String reference = REFERENCE_PREFIX + hash(tableText);
+        if (tables.putIfAbsent(reference, tableText) == null) {
+            LOGGER.info("Nested table saved in memory: {}", reference);
+        } else {
+            LOGGER.info("Same nested table already saved in memory: {}", reference);
+        }
+        return reference;
+    }
+
+    /**
+     * Gets table text.
+     *
+     * @param reference the reference returned by {@link #put(String)}
+     * @return the table text or null when there is no such table
+     */
+    public String get(String reference) {
+        return tables.get(reference);
+    }
+
+    public boolean isReference(String path) {
+        return path.startsWith(REFERENCE_PREFIX);
+    }
+
+    public int size() {
+        return tables.size();
+    }
+
+    void loaderInstalled() {
+        loaderInstalled = true;
+    }
+
+    /**
+     * Calculates hash of table text that is used to address the table.
+     *
+     * @param tableText the table text
+     * @return hex string of SHA-256 hash
+     */
+    public static String hash(String tableText) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(tableText.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format(Locale.ROOT, "%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            //SHA-256 is required to be supported by every java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package data.parser;
+
+import org.jbehave.core.io.InvalidStoryResource;
+import org.jbehave.core.io.StoryLoader;
+
+/**
+ * Story loader that resolves nested tables saved in {@link NestedTableStore}
+ * and delegates all other resources to the wrapped loader.
+ * <p>
+ * Usage: {@code configuration.useStoryLoader(new NestedTableStoryLoader(configuration.storyLoader()))}
+ */
+public class NestedTableStoryLoader implements StoryLoader {
+    private final StoryLoader delegate;
+    private final NestedTableStore store;
+
+    public NestedTableStoryLoader(StoryLoader delegate) {
+        this(delegate, NestedTableStore.getInstance());
+    }
+
+    NestedTableStoryLoader(StoryLoader delegate, NestedTableStore store) {
+        this.delegate = delegate;
+        this.store = store;
+        store.loaderInstalled();
+    }
+
+    @Override
+    public String loadResourceAsText(String resourcePath) {
+        String path = resourcePath.trim();
+        if (!store.isReference(path)) {
+            return delegate.loadResourceAsText(resourcePath);
+        }
+        String table = store.get(path);
+        if (table == null) {
+            throw new InvalidStoryResource("Nested table is not found in memory: " + path, null);
+        }
+        return table;
+    }
+
+    @Override
+    public String loadStoryAsText(String storyPath) {
+        return delegate.loadStoryAsText(storyPath);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + delegate + "]";
+    }
+}
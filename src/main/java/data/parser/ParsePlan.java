@@ -0,0 +1,188 @@
+package data.parser;
+
+import data.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Parsing plan of one tag layout (third column of a sheet), compiled once and reused by all sheets with the
+ * same tags. Run sheets of a document almost always share the layout, so tags are checked only once per document.
+ * <p>
+ * Each row of the layout is either a value of a column, a row of nested structure or ignored.
+ * Nested structures are compiled to spans with labels and types already taken from their tags.
+ */
+final class ParsePlan {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParsePlan.class);
+    private static final String START_NESTED_STRUCTURE = "@startNestedStructure";
+    private static final String END_NESTED_STRUCTURE = "@endNestedStructure";
+    private static final int CACHE_LIMIT = 256;
+    private static final ConcurrentMap<List<String>, ParsePlan> CACHE = new ConcurrentHashMap<>();
+
+    //Target columns in order of their first appearance in the layout
+    private final List<String> columns;
+    private final int[] valueRows;
+    private final int[] valueColumns;
+    private final List<NestedSpan> nestedSpans;
+
+    private ParsePlan(List<String> columns, int[] valueRows, int[] valueColumns, List<NestedSpan> nestedSpans) {
+        this.columns = columns;
+        this.valueRows = valueRows;
+        this.valueColumns = valueColumns;
+        this.nestedSpans = nestedSpans;
+    }
+
+    /**
+     * Gets plan of the tag layout, compiling it when layout is new.
+     *
+     * @param tags the tags column of the sheet
+     * @return the plan
+     */
+    static ParsePlan of(List<String> tags) {
+        ParsePlan plan = CACHE.get(tags);
+        if (plan == null) {
+            plan = compile(tags);
+            if (CACHE.size() >= CACHE_LIMIT) {
+                CACHE.clear();
+            }
+            //Key is copied, because loaded columns are not owned by the plan
+            CACHE.putIfAbsent(new ArrayList<>(tags), plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Gets columns that are filled by this plan.
+     *
+     * @return the column names, nested structures are named by text after @startNestedStructure
+     */
+    List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Adds values of one sheet to target columns.
+     *
+     * @param values       the values column of the sheet
+     * @param targets      the lists of {@link #getColumns()} in the same order
+     * @param nestedTables the function that stores nested table and returns its reference
+     */
+    void apply(List<String> values, List<List<String>> targets,
+               Function<Map<String, List<String>>, String> nestedTables) {
+        for (int v = 0; v < valueRows.length; v++) {
+            targets.get(valueColumns[v]).add(singleLine(value(values, valueRows[v])));
+        }
+        for (NestedSpan span : nestedSpans) {
+            List<String> nestedValues = new ArrayList<>(span.rows.length);
+            for (int row : span.rows) {
+                nestedValues.add(value(values, row));
+            }
+            //Columns order is the same as it was for the table built in HashMap before
+            Map<String, List<String>> table = new LinkedHashMap<>(4);
+            table.put("label", span.labels);
+            table.put("type", span.types);
+            table.put("value", nestedValues);
+            targets.get(span.column).add(nestedTables.apply(table));
+        }
+    }
+
+    private static ParsePlan compile(List<String> tags) {
+        Metrics.increment("parser.plansCompiled");
+        Map<String, Integer> columnIndexes = new LinkedHashMap<>();
+        int[] valueRows = new int[tags.size()];
+        int[] valueColumns = new int[tags.size()];
+        int valuesCount = 0;
+        List<NestedSpan> nestedSpans = new ArrayList<>();
+        String nestedName = null;
+        List<Integer> nestedRows = null;
+        List<String> nestedLabels = null;
+        List<String> nestedTypes = null;
+        for (int i = 0; i < tags.size(); i++) {
+            String tag = tags.get(i);
+            //Empty tags and tags that start with '!' are ignored
+            if (tag == null || tag.isEmpty() || tag.charAt(0) == '!') {
+                continue;
+            }
+            if (tag.charAt(0) != '@') {
+                valueRows[valuesCount] = i;
+                valueColumns[valuesCount++] = columnIndex(columnIndexes, tag);
+            } else if (tag.contains(START_NESTED_STRUCTURE + " ")) {
+                nestedName = tag.replace(START_NESTED_STRUCTURE, "");
+                nestedRows = new ArrayList<>();
+                nestedLabels = new ArrayList<>();
+                nestedTypes = new ArrayList<>();
+            } else if (END_NESTED_STRUCTURE.equals(tag)) {
+                if (nestedName != null) {
+                    int[] rows = new int[nestedRows.size()];
+                    for (int r = 0; r < rows.length; r++) {
+                        rows[r] = nestedRows.get(r);
+                    }
+                    nestedSpans.add(new NestedSpan(columnIndex(columnIndexes, nestedName), rows,
+                            Collections.unmodifiableList(nestedLabels), Collections.unmodifiableList(nestedTypes)));
+                    nestedName = null;
+                }
+            } else {
+                //Row of nested structure is tagged as @type#label
+                String[] parts = tag.replace("@", "").split("#");
+                if (nestedName == null) {
+                    //Rows outside of nested structure were never added to any table
+                    LOGGER.warn("Nested structure tag {} in row {} is outside of structure and ignored", tag, i + 1);
+                    continue;
+                }
+                if (parts.length < 2) {
+                    throw new RuntimeException("Wrong nested structure tag in google spreadsheet: " + tag);
+                }
+                nestedRows.add(i);
+                nestedTypes.add(parts[0]);
+                nestedLabels.add(parts[1]);
+            }
+        }
+        return new ParsePlan(Collections.unmodifiableList(new ArrayList<>(columnIndexes.keySet())),
+                Arrays.copyOf(valueRows, valuesCount), Arrays.copyOf(valueColumns, valuesCount),
+                Collections.unmodifiableList(nestedSpans));
+    }
+
+    private static int columnIndex(Map<String, Integer> columnIndexes, String column) {
+        Integer index = columnIndexes.get(column);
+        if (index == null) {
+            index = columnIndexes.size();
+            columnIndexes.put(column, index);
+        }
+        return index;
+    }
+
+    //Sheets api omits trailing empty cells, so values column can be shorter than tags column
+    private static String value(List<String> values, int row) {
+        return row < values.size() ? values.get(row) : "";
+    }
+
+    private static String singleLine(String value) {
+        return value.indexOf('\n') < 0 ? value : value.replace('\n', ' ');
+    }
+
+    /*
+     * Rows of one nested structure with labels and types from their tags.
+     */
+    private static final class NestedSpan {
+        private final int column;
+        private final int[] rows;
+        private final List<String> labels;
+        private final List<String> types;
+
+        private NestedSpan(int column, int[] rows, List<String> labels, List<String> types) {
+            this.column = column;
+            this.rows = rows;
+            this.labels = labels;
+            this.types = types;
+        }
+    }
+}
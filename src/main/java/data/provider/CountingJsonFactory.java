@@ -0,0 +1,106 @@
+package data.provider;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.JsonParser;
+import data.metrics.Metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/*
+ * Json factory of sheets client that counts bytes of response bodies read by the client.
+ * Content-Length is missing from gzipped chunked responses, so bytes are counted while they are read.
+ * Counted size is the size of decompressed body, which is what field masks and column ranges are reducing.
+ */
+final class CountingJsonFactory extends JsonFactory {
+    private final JsonFactory delegate;
+
+    CountingJsonFactory(JsonFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public JsonParser createJsonParser(InputStream in) throws IOException {
+        return delegate.createJsonParser(new CountingInputStream(in));
+    }
+
+    @Override
+    public JsonParser createJsonParser(InputStream in, Charset charset) throws IOException {
+        return delegate.createJsonParser(new CountingInputStream(in), charset);
+    }
+
+    @Override
+    public JsonParser createJsonParser(String value) throws IOException {
+        return delegate.createJsonParser(value);
+    }
+
+    @Override
+    public JsonParser createJsonParser(Reader reader) throws IOException {
+        return delegate.createJsonParser(reader);
+    }
+
+    @Override
+    public JsonGenerator createJsonGenerator(OutputStream out, Charset enc) throws IOException {
+        return delegate.createJsonGenerator(out, enc);
+    }
+
+    @Override
+    public JsonGenerator createJsonGenerator(Writer writer) throws IOException {
+        return delegate.createJsonGenerator(writer);
+    }
+
+    //Bytes are recorded once when parser closes the stream
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+        private boolean closed;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result >= 0) {
+                count++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result > 0) {
+                count += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            count += result;
+            return result;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                Metrics.recordValue("sheets.responseBytes", count);
+            }
+            super.close();
+        }
+    }
+}
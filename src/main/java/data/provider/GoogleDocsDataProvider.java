@@ -7,11 +7,17 @@ import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
 import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.client.util.store.DataStore;
 import com.google.api.client.util.store.FileDataStoreFactory;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.SheetsScopes;
+import data.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -20,12 +26,37 @@ import java.io.InputStreamReader;
 import java.security.GeneralSecurityException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-public class GoogleDocsDataProvider {
+/**
+ * Provides authorized google sheets client.
+ * <p>
+ * One http transport is shared by all providers of the JVM, so connections are kept alive and reused by
+ * the JVM keep-alive cache (its size per host is set by http.maxConnections system property).
+ * Sheets client and credential are created once per provider and reused by all threads.
+ * <p>
+ * Long-lived providers should call {@link #startBackgroundRefresh()}, then access token is refreshed ahead of
+ * its expiry in background thread instead of on the request path. Concurrent callers are always sharing
+ * a single token refresh.
+ */
+public class GoogleDocsDataProvider implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoogleDocsDataProvider.class);
+    private static final long REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long REFRESH_CHECK_PERIOD_SECONDS = 30;
+    private static final JsonFactory SHEETS_JSON_FACTORY = new CountingJsonFactory(JacksonFactory.getDefaultInstance());
+    private static NetHttpTransport transport;
     private String clientSecretsPath = "/google-sheets-client-secret.json";
     private String storedCredentialsPath = ".\\";
-    private String docId;
-    private Credential credential;
+    private volatile String docId;
+    private volatile Credential credential;
+    private volatile Sheets sheetsService;
+    private final Object refreshLock = new Object();
+    private CompletableFuture<Credential> refreshInProgress;
+    private ScheduledExecutorService refresher;
 
     public void setDocId(String docId) {
         this.docId = docId;
@@ -42,7 +73,16 @@ public class GoogleDocsDataProvider {
      * @throws IOException              the io exception
      * @throws GeneralSecurityException the general security exception
      */
-    public Credential authorize() throws IOException, GeneralSecurityException {
+    public synchronized Credential authorize() throws IOException, GeneralSecurityException {
+        Metrics.Sample sample = Metrics.start("auth.authorize");
+        try {
+            return authorizeCredential();
+        } finally {
+            sample.stop();
+        }
+    }
+
+    private Credential authorizeCredential() throws IOException, GeneralSecurityException {
         InputStream is = GoogleDocsDataProvider.class.getResourceAsStream(clientSecretsPath);
         GoogleClientSecrets clientSecrets = GoogleClientSecrets.load(
                 JacksonFactory.getDefaultInstance(),
@@ -56,7 +96,7 @@ public class GoogleDocsDataProvider {
 
         List<String> scopes = Collections.singletonList(SheetsScopes.SPREADSHEETS_READONLY);
         GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-                GoogleNetHttpTransport.newTrustedTransport(),
+                getTransport(),
                 JacksonFactory.getDefaultInstance(),
                 clientSecrets,
                 scopes)
@@ -65,6 +105,8 @@ public class GoogleDocsDataProvider {
         //DO NOT CHANGE
         credential = new AuthorizationCodeInstalledApp(flow, new LocalServerReceiver()).authorize("user");
         credential.refreshToken();
+        //Client is bound to credential object, so it should be rebuilt for the new one
+        sheetsService = null;
         return credential;
     }
 
@@ -76,12 +118,140 @@ public class GoogleDocsDataProvider {
      * @throws GeneralSecurityException the general security exception
      */
     public Sheets getSheetsService() throws IOException, GeneralSecurityException {
-        if (credential == null || credential.getExpirationTimeMilliseconds() < System.currentTimeMillis()) {
-            authorize();
+        Metrics.Sample sample = Metrics.start("provider.getSheetsService");
+        try {
+            return getOrBuildSheetsService();
+        } finally {
+            sample.stop();
         }
-        return new Sheets
-                .Builder(GoogleNetHttpTransport.newTrustedTransport(), JacksonFactory.getDefaultInstance(), credential)
-                .setApplicationName("Google Sheets Example")
-                .build();
+    }
+
+    private Sheets getOrBuildSheetsService() throws IOException, GeneralSecurityException {
+        Credential current = credential;
+        if (current == null || expiresWithin(current, 0)) {
+            refreshCredential();
+        }
+        Sheets service = sheetsService;
+        if (service == null) {
+            synchronized (this) {
+                service = sheetsService;
+                if (service == null) {
+                    Credential serviceCredential = credential;
+                    service = new Sheets
+                            .Builder(getTransport(), SHEETS_JSON_FACTORY, request -> {
+                                serviceCredential.initialize(request);
+                                request.setResponseInterceptor(GoogleDocsDataProvider::countResponse);
+                            })
+                            .setApplicationName("Google Sheets Example")
+                            .build();
+                    sheetsService = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Starts background thread that is refreshing access token ahead of its expiry.
+     * Thread is stopped by {@link #close()}.
+     */
+    public synchronized void startBackgroundRefresh() {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "google-token-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            Credential current = credential;
+            if (current != null && expiresWithin(current, REFRESH_AHEAD_MILLIS)) {
+                try {
+                    refreshCredential();
+                } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                    //Next check will try again, and request path still refreshes expired token by itself
+                    LOGGER.info("Failed to refresh access token in background. {}", e.toString());
+                }
+            }
+        }, 0, REFRESH_CHECK_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops background token refresh.
+     */
+    @Override
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    /*
+     * Refreshes access token or authorizes when there is no credential yet.
+     * Only one refresh is running at a time, other callers are waiting for its result.
+     */
+    private Credential refreshCredential() throws IOException, GeneralSecurityException {
+        CompletableFuture<Credential> refresh;
+        boolean owner = false;
+        synchronized (refreshLock) {
+            if (refreshInProgress == null) {
+                refreshInProgress = new CompletableFuture<>();
+                owner = true;
+            }
+            refresh = refreshInProgress;
+        }
+        if (owner) {
+            Metrics.Sample sample = Metrics.start("auth.refresh");
+            try {
+                Credential current = credential;
+                if (current == null || !current.refreshToken()) {
+                    current = authorize();
+                }
+                LOGGER.info("Access token refreshed.");
+                refresh.complete(current);
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                refresh.completeExceptionally(e);
+                throw e;
+            } finally {
+                sample.stop();
+                synchronized (refreshLock) {
+                    refreshInProgress = null;
+                }
+            }
+        }
+        try {
+            return refresh.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for access token refresh", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) cause;
+            }
+            throw new RuntimeException("Failed to refresh access token", cause);
+        }
+    }
+
+    //Response size is counted by CountingJsonFactory while the body is read
+    private static void countResponse(HttpResponse response) {
+        Metrics.increment("sheets.responses." + response.getStatusCode());
+    }
+
+    private static boolean expiresWithin(Credential credential, long millis) {
+        Long expiration = credential.getExpirationTimeMilliseconds();
+        return expiration == null || expiration - millis < System.currentTimeMillis();
+    }
+
+    private static synchronized NetHttpTransport getTransport() throws IOException, GeneralSecurityException {
+        if (transport == null) {
+            transport = GoogleNetHttpTransport.newTrustedTransport();
+        }
+        return transport;
     }
 }
@@ -0,0 +1,253 @@
+package data.provider;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
+import data.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules requests to google sheets api.
+ * <p>
+ * Read quota is tracked in a token bucket that is refilled continuously, so callers are waiting only when
+ * the budget for the current minute is used up. Failed requests are retried with capped exponential backoff
+ * with jitter when the error is worth retrying (quota errors, server errors and timeouts).
+ * <p>
+ * Configuration is taken from system properties:
+ * <ul>
+ * <li>qaa.readQuotaPerMinute - read requests allowed per minute, 60 by default</li>
+ * <li>qaa.maxRetries - retries of one request before giving up, 5 by default</li>
+ * <li>qaa.backoffInitialMillis - first backoff delay, 1000 by default</li>
+ * <li>qaa.backoffMaxMillis - upper bound of backoff delay and of Retry-After delay, 64000 by default</li>
+ * </ul>
+ */
+public class RequestScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestScheduler.class);
+    private static final long MILLIS_IN_MINUTE = 60_000L;
+
+    private final double capacity;
+    private final double refillPerMilli;
+    private final int maxRetries;
+    private final long backoffInitialMillis;
+    private final long backoffMaxMillis;
+
+    private double tokens;
+    private long lastRefillMillis;
+
+    private final AtomicLong requestsCount = new AtomicLong();
+    private final AtomicLong retriesCount = new AtomicLong();
+    private final AtomicLong quotaWaitMillis = new AtomicLong();
+    private final AtomicLong backoffWaitMillis = new AtomicLong();
+
+    /**
+     * Request to google api.
+     *
+     * @param <T> the response type
+     */
+    public interface Request<T> {
+        T execute() throws IOException;
+    }
+
+    private static final class Holder {
+        private static final RequestScheduler INSTANCE = new RequestScheduler(
+                Integer.getInteger("qaa.readQuotaPerMinute", 60),
+                Integer.getInteger("qaa.maxRetries", 5),
+                Long.getLong("qaa.backoffInitialMillis", 1000L),
+                Long.getLong("qaa.backoffMaxMillis", 64_000L));
+    }
+
+    /**
+     * Gets scheduler shared by all data parsers of current JVM.
+     *
+     * @return the shared scheduler
+     */
+    public static RequestScheduler getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public RequestScheduler(int requestsPerMinute, int maxRetries, long backoffInitialMillis, long backoffMaxMillis) {
+        if (requestsPerMinute <= 0) {
+            throw new IllegalArgumentException("Requests per minute should be positive: " + requestsPerMinute);
+        }
+        this.capacity = requestsPerMinute;
+        this.refillPerMilli = requestsPerMinute / (double) MILLIS_IN_MINUTE;
+        this.maxRetries = maxRetries;
+        this.backoffInitialMillis = backoffInitialMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        this.tokens = capacity;
+        this.lastRefillMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Executes request, waiting for quota and retrying it when the error is retryable.
+     *
+     * @param request the request
+     * @param <T>     the response type
+     * @return the response
+     * @throws IOException the last error when request can't be retried any more
+     */
+    public <T> T execute(Request<T> request) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            acquire();
+            requestsCount.incrementAndGet();
+            Metrics.increment("sheets.requests");
+            try {
+                return request.execute();
+            } catch (IOException e) {
+                if (!isRetryable(e) || attempt > maxRetries) {
+                    throw e;
+                }
+                if (isQuotaError(e)) {
+                    //Quota is used up on google side, so there is no sense to spend tokens that are left
+                    drain();
+                }
+                long delay = retryDelay(e, attempt);
+                LOGGER.info("Request failed with {}. Retrying in {} ms, attempt {} of {}.",
+                        e.toString(), delay, attempt, maxRetries);
+                retriesCount.incrementAndGet();
+                backoffWaitMillis.addAndGet(delay);
+                Metrics.increment("sheets.retries");
+                Metrics.recordMillis("sheets.backoffWait", delay);
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Takes one request from the quota budget, waiting only when the budget is used up.
+     *
+     * @throws InterruptedIOException when waiting thread is interrupted
+     */
+    public void acquire() throws InterruptedIOException {
+        long waitMillis;
+        synchronized (this) {
+            refill();
+            //Token is reserved even when the bucket is empty, so concurrent callers are queued one after another
+            tokens -= 1;
+            waitMillis = tokens >= 0 ? 0L : (long) Math.ceil(-tokens / refillPerMilli);
+        }
+        if (waitMillis > 0) {
+            LOGGER.info("Read quota is used up. Waiting {} ms for quota.", waitMillis);
+            quotaWaitMillis.addAndGet(waitMillis);
+            Metrics.recordMillis("sheets.quotaWait", waitMillis);
+            sleep(waitMillis);
+        }
+    }
+
+    public long getRequestsCount() {
+        return requestsCount.get();
+    }
+
+    public long getRetriesCount() {
+        return retriesCount.get();
+    }
+
+    public long getQuotaWaitMillis() {
+        return quotaWaitMillis.get();
+    }
+
+    public long getBackoffWaitMillis() {
+        return backoffWaitMillis.get();
+    }
+
+    private synchronized void refill() {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(capacity, tokens + (now - lastRefillMillis) * refillPerMilli);
+        lastRefillMillis = now;
+    }
+
+    private synchronized void drain() {
+        refill();
+        tokens = Math.min(tokens, 0);
+    }
+
+    private long retryDelay(IOException e, int attempt) {
+        if (e instanceof HttpResponseException) {
+            long retryAfter = parseRetryAfter(((HttpResponseException) e).getHeaders().getRetryAfter());
+            if (retryAfter > backoffMaxMillis) {
+                //Proxy or far future date must not stall loader thread, request is retried after max backoff anyway
+                LOGGER.info("Retry-After of {} ms is longer than max backoff, waiting {} ms.",
+                        retryAfter, backoffMaxMillis);
+                return backoffMaxMillis;
+            }
+            if (retryAfter >= 0) {
+                return retryAfter;
+            }
+        }
+        long exponential = backoffInitialMillis << Math.min(attempt - 1, 30);
+        long capped = exponential <= 0 ? backoffMaxMillis : Math.min(backoffMaxMillis, exponential);
+        //Half of the delay is fixed and second half is random, so forks that failed together don't retry together
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    // @return delay in millis or -1 when header is absent or malformed
+    private static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isEmpty()) {
+            return -1L;
+        }
+        try {
+            return Math.max(0L, Long.parseLong(retryAfter.trim()) * 1000L);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0L, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+            } catch (DateTimeParseException er) {
+                LOGGER.info("Unsupported Retry-After header value: {}", retryAfter);
+                return -1L;
+            }
+        }
+    }
+
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof HttpResponseException) {
+            int status = ((HttpResponseException) e).getStatusCode();
+            return status == 408 || status >= 500 || isQuotaError(e);
+        }
+        return e instanceof SocketTimeoutException || e instanceof SocketException;
+    }
+
+    private static boolean isQuotaError(IOException e) {
+        if (!(e instanceof HttpResponseException)) {
+            return false;
+        }
+        int status = ((HttpResponseException) e).getStatusCode();
+        if (status == 429) {
+            return true;
+        }
+        //Older quota errors are returned as 403 with a rate limit reason
+        if (status == 403 && e instanceof GoogleJsonResponseException) {
+            GoogleJsonError details = ((GoogleJsonResponseException) e).getDetails();
+            if (details != null && details.getErrors() != null) {
+                for (GoogleJsonError.ErrorInfo error : details.getErrors()) {
+                    String reason = error.getReason();
+                    if ("rateLimitExceeded".equals(reason) || "userRateLimitExceeded".equals(reason)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for google api quota");
+        }
+    }
+}
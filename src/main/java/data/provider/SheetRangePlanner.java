@@ -0,0 +1,192 @@
+package data.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Plans value ranges that are requested for each sheet, so only the columns used by the parser are downloaded.
+ * <p>
+ * Parser reads values from the second column (B) and parsing tags from the third one (C), so only B:C
+ * is requested by default. Columns are shifted back to their sheet positions after loading, so column B is
+ * always at index 1 regardless of the requested range.
+ * <p>
+ * Configuration is taken from system properties:
+ * <ul>
+ * <li>qaa.sheetColumns - requested columns, B:C by default, A:Z requests whole sheet as before</li>
+ * <li>qaa.valueRenderOption - FORMATTED_VALUE (default), UNFORMATTED_VALUE or FORMULA</li>
+ * <li>qaa.dateTimeRenderOption - FORMATTED_STRING (default) or SERIAL_NUMBER,
+ * used only when values are not formatted</li>
+ * <li>qaa.pageRows - rows requested at once from tall sheets, 0 (default) requests whole sheets.
+ * When it is set, documents are streamed to the parser sheet by sheet</li>
+ * </ul>
+ */
+public class SheetRangePlanner {
+    /**
+     * Metadata fields that are needed to plan ranges and to validate cached snapshots.
+     */
+    public static final String METADATA_FIELDS =
+            "sheets.properties(sheetId,title,gridProperties(rowCount,columnCount))";
+    /**
+     * Fields of batchGet response that are used by loader.
+     */
+    public static final String VALUES_FIELDS = "valueRanges(range,values)";
+    private static final String FORMATTED_VALUE = "FORMATTED_VALUE";
+
+    private final String firstColumn;
+    private final String lastColumn;
+    private final int firstColumnIndex;
+    private final String valueRenderOption;
+    private final String dateTimeRenderOption;
+    private final int pageRows;
+
+    private static final class Holder {
+        private static final SheetRangePlanner INSTANCE = new SheetRangePlanner(
+                System.getProperty("qaa.sheetColumns", "B:C"),
+                System.getProperty("qaa.valueRenderOption", FORMATTED_VALUE),
+                System.getProperty("qaa.dateTimeRenderOption", "FORMATTED_STRING"),
+                Integer.getInteger("qaa.pageRows", 0));
+    }
+
+    /**
+     * Gets planner configured by system properties.
+     *
+     * @return the shared planner
+     */
+    public static SheetRangePlanner getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Instantiates a new planner.
+     *
+     * @param columns              the requested columns in A1 notation, for example "B:C"
+     * @param valueRenderOption    the value render option of sheets api
+     * @param dateTimeRenderOption the date time render option of sheets api
+     */
+    public SheetRangePlanner(String columns, String valueRenderOption, String dateTimeRenderOption) {
+        this(columns, valueRenderOption, dateTimeRenderOption, 0);
+    }
+
+    /**
+     * Instantiates a new planner that requests tall sheets by pages.
+     *
+     * @param columns              the requested columns in A1 notation, for example "B:C"
+     * @param valueRenderOption    the value render option of sheets api
+     * @param dateTimeRenderOption the date time render option of sheets api
+     * @param pageRows             the rows of one page, 0 to request whole sheets
+     */
+    public SheetRangePlanner(String columns, String valueRenderOption, String dateTimeRenderOption, int pageRows) {
+        String[] bounds = columns.trim().toUpperCase(Locale.ROOT).split(":");
+        if (bounds.length != 2 || !bounds[0].matches("[A-Z]+") || !bounds[1].matches("[A-Z]+")) {
+            throw new IllegalArgumentException("Columns should be set as range of column letters, like B:C: " + columns);
+        }
+        this.firstColumn = bounds[0];
+        this.lastColumn = bounds[1];
+        this.firstColumnIndex = columnIndex(firstColumn);
+        this.valueRenderOption = valueRenderOption;
+        this.dateTimeRenderOption = dateTimeRenderOption;
+        this.pageRows = pageRows;
+    }
+
+    /**
+     * Builds range of the sheet in A1 notation.
+     *
+     * @param sheetTitle the sheet title
+     * @return the range, for example 'Run 1'!B:C
+     */
+    public String range(String sheetTitle) {
+        return "'" + sheetTitle.replace("'", "''") + "'!" + firstColumn + ":" + lastColumn;
+    }
+
+    /**
+     * Builds range of rows of the sheet in A1 notation.
+     *
+     * @param sheetTitle the sheet title
+     * @param firstRow   the first row, starting from 1
+     * @param lastRow    the last row, inclusive
+     * @return the range, for example 'Run 1'!B1:C500
+     */
+    public String range(String sheetTitle, int firstRow, int lastRow) {
+        return "'" + sheetTitle.replace("'", "''") + "'!" + firstColumn + firstRow + ":" + lastColumn + lastRow;
+    }
+
+    /**
+     * Gets rows count of one page of tall sheet.
+     *
+     * @return the rows count or 0 when sheets are requested whole
+     */
+    public int getPageRows() {
+        return pageRows;
+    }
+
+    /**
+     * Describes settings that change loaded values, data loaded with other settings can't be reused.
+     *
+     * @return the settings, for example B:C FORMATTED_VALUE
+     */
+    public String getSettings() {
+        String dateTimeRenderOption = getDateTimeRenderOption();
+        return firstColumn + ":" + lastColumn + " " + valueRenderOption
+                + (dateTimeRenderOption == null ? "" : " " + dateTimeRenderOption);
+    }
+
+    public String getValueRenderOption() {
+        return valueRenderOption;
+    }
+
+    /**
+     * Gets date time render option, which is applicable only to unformatted values.
+     *
+     * @return the option or null when values are formatted
+     */
+    public String getDateTimeRenderOption() {
+        return FORMATTED_VALUE.equals(valueRenderOption) ? null : dateTimeRenderOption;
+    }
+
+    /**
+     * Converts loaded columns to the parser format, where index of each column is its index in the sheet.
+     * Columns in front of requested range are empty.
+     *
+     * @param values the values of the range in COLUMNS major dimension
+     * @return the columns of the sheet or null when range has no values
+     */
+    public List<List<String>> toSheetColumns(List<List<Object>> values) {
+        if (values == null) {
+            return null;
+        }
+        List<List<String>> result = new ArrayList<>(firstColumnIndex + values.size());
+        for (int i = 0; i < firstColumnIndex; i++) {
+            result.add(Collections.<String>emptyList());
+        }
+        boolean formatted = FORMATTED_VALUE.equals(valueRenderOption);
+        for (List<Object> column : values) {
+            result.add(formatted ? castToStrings(column) : convertToStrings(column));
+        }
+        return result;
+    }
+
+    // Formatted values are always strings, so it's okay to cast them without copying
+    @SuppressWarnings("unchecked")
+    private static List<String> castToStrings(List<Object> column) {
+        return (List<String>) (Object) column;
+    }
+
+    // Unformatted numbers and booleans are returned as json values, so they are converted to strings
+    private static List<String> convertToStrings(List<Object> column) {
+        List<String> result = new ArrayList<>(column.size());
+        for (Object value : column) {
+            result.add(value == null ? "" : value.toString());
+        }
+        return result;
+    }
+
+    private static int columnIndex(String column) {
+        int index = 0;
+        for (int i = 0; i < column.length(); i++) {
+            index = index * 26 + (column.charAt(i) - 'A' + 1);
+        }
+        return index - 1;
+    }
+}
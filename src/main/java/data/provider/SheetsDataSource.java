@@ -0,0 +1,252 @@
+package data.provider;
+
+import static java.lang.String.format;
+
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.BatchGetValuesResponse;
+import com.google.api.services.sheets.v4.model.GridProperties;
+import com.google.api.services.sheets.v4.model.Sheet;
+import com.google.api.services.sheets.v4.model.Spreadsheet;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import data.cache.SpreadsheetSnapshotCache;
+import data.metrics.Metrics;
+import data.source.SpreadsheetDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Loads spreadsheet data from google sheets api, using snapshot cache, request scheduler and range planner
+ * that are shared by the JVM. Tall sheets can be streamed by pages, see {@link #stream}.
+ */
+public class SheetsDataSource implements SpreadsheetDataSource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SheetsDataSource.class);
+    private static final int DEFAULT_BATCH_GET_CHUNK_SIZE = 50;
+    private final GoogleDocsDataProvider provider;
+    private final RequestScheduler scheduler = RequestScheduler.getInstance();
+    private final SpreadsheetSnapshotCache cache = SpreadsheetSnapshotCache.getInstance();
+    private final SheetRangePlanner rangePlanner = SheetRangePlanner.getInstance();
+    private final int chunkSize;
+
+    /**
+     * Instantiates source that loads sheets in batchGet chunks of qaa.batchGetChunkSize ranges, 50 by default.
+     *
+     * @param provider the provider of authorized sheets client
+     * @throws IllegalArgumentException when chunk size is not positive
+     */
+    public SheetsDataSource(GoogleDocsDataProvider provider) {
+        this.provider = provider;
+        this.chunkSize = Integer.getInteger("qaa.batchGetChunkSize", DEFAULT_BATCH_GET_CHUNK_SIZE);
+        //Chunks are never advanced with zero size
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("qaa.batchGetChunkSize should be positive: " + chunkSize);
+        }
+    }
+
+    @Override
+    public Map<String, List<List<String>>> load(String docId) throws IOException, GeneralSecurityException {
+        Map<String, List<List<String>>> result = getData(docId);
+        logStats();
+        return result;
+    }
+
+    /**
+     * Streams sheets loaded by pages of qaa.pageRows rows, so response size and memory are bounded by
+     * one batch of pages and the sheet that is assembled from them. Sheets are passed to consumer in order
+     * as soon as their last page is loaded.
+     * <p>
+     * Snapshot cache needs the whole document, so when it is on, or paging is off, the document is loaded
+     * whole and then passed sheet by sheet.
+     */
+    @Override
+    public void stream(String docId, BiConsumer<String, List<List<String>>> consumer)
+            throws IOException, GeneralSecurityException {
+        int pageRows = rangePlanner.getPageRows();
+        if (pageRows <= 0 || cache.getMode() != SpreadsheetSnapshotCache.Mode.OFF) {
+            SpreadsheetDataSource.super.stream(docId, consumer);
+            return;
+        }
+        Sheets service = provider.getSheetsService();
+        Spreadsheet spreadsheet = getMetadata(service, docId);
+        List<Page> pages = new ArrayList<>();
+        for (Sheet sheet : spreadsheet.getSheets()) {
+            String sheetTitle = sheet.getProperties().getTitle();
+            if (sheetTitle.startsWith("!")) {
+                continue;
+            }
+            GridProperties grid = sheet.getProperties().getGridProperties();
+            int rowCount = grid == null || grid.getRowCount() == null ? 0 : grid.getRowCount();
+            if (rowCount <= pageRows) {
+                pages.add(new Page(sheetTitle, rangePlanner.range(sheetTitle), 0, true));
+                continue;
+            }
+            for (int first = 1; first <= rowCount; first += pageRows) {
+                int last = Math.min(first + pageRows - 1, rowCount);
+                pages.add(new Page(sheetTitle, rangePlanner.range(sheetTitle, first, last), first - 1,
+                        last == rowCount));
+            }
+        }
+        List<List<String>> sheetColumns = null;
+        for (int from = 0; from < pages.size(); from += chunkSize) {
+            List<Page> chunk = pages.subList(from, Math.min(from + chunkSize, pages.size()));
+            List<String> ranges = new ArrayList<>(chunk.size());
+            for (Page page : chunk) {
+                ranges.add(page.range);
+            }
+            LOGGER.info("Getting {} pages of sheets.", chunk.size());
+            List<ValueRange> valueRanges = batchGet(service, docId, ranges);
+            for (int i = 0; i < chunk.size(); i++) {
+                Page page = chunk.get(i);
+                List<List<String>> columns = rangePlanner.toSheetColumns(valueRanges.get(i).getValues());
+                sheetColumns = appendPage(sheetColumns, columns, page.firstRowIndex);
+                if (page.last) {
+                    Metrics.increment("loader.streamedSheets");
+                    consumer.accept(page.sheetTitle, sheetColumns);
+                    sheetColumns = null;
+                }
+            }
+        }
+        logStats();
+    }
+
+    private void logStats() {
+        LOGGER.info("Data loaded. Requests: {}, retries: {}, quota wait: {} ms, backoff wait: {} ms.",
+                scheduler.getRequestsCount(), scheduler.getRetriesCount(),
+                scheduler.getQuotaWaitMillis(), scheduler.getBackoffWaitMillis());
+    }
+
+    private Map<String, List<List<String>>> getData(String docId) throws IOException, GeneralSecurityException {
+        SpreadsheetSnapshotCache.Snapshot snapshot = cache.load(docId, rangePlanner.getSettings());
+        //In TTL and OFFLINE modes snapshot is used without any request to google
+        if (snapshot != null && cache.getMode() != SpreadsheetSnapshotCache.Mode.VALIDATE) {
+            LOGGER.info("Using cached snapshot of document {}", docId);
+            Metrics.increment("cache.hits");
+            return snapshot.getData();
+        }
+        if (cache.getMode() == SpreadsheetSnapshotCache.Mode.OFFLINE) {
+            throw new IOException(format("No cached snapshot of document %s in offline mode", docId));
+        }
+        Map<String, List<List<String>>> result = new HashMap<>();
+        Sheets service = provider.getSheetsService();
+        Spreadsheet spreadsheet = getMetadata(service, docId);
+        String fingerprint = SpreadsheetSnapshotCache.fingerprint(spreadsheet);
+        if (snapshot != null && fingerprint.equals(snapshot.getFingerprint())) {
+            LOGGER.info("Document {} structure is not changed. Using cached snapshot.", docId);
+            Metrics.increment("cache.validatedHits");
+            return snapshot.getData();
+        }
+        if (cache.getMode() != SpreadsheetSnapshotCache.Mode.OFF) {
+            Metrics.increment("cache.misses");
+        }
+        List<String> sheetTitles = new ArrayList<>();
+        for (Sheet sheet : spreadsheet.getSheets()) {
+            String sheetTitle = sheet.getProperties().getTitle();
+            // If sheet name starts with '!' char then we are ignoring that list
+            if (!sheetTitle.startsWith("!")) {
+                sheetTitles.add(sheetTitle);
+            }
+        }
+        // Requesting all sheets with one batchGet call per chunk instead of one call per sheet,
+        // chunks are needed only to keep request url in reasonable length for documents with many sheets
+        for (int from = 0; from < sheetTitles.size(); from += chunkSize) {
+            List<String> chunk = sheetTitles.subList(from, Math.min(from + chunkSize, sheetTitles.size()));
+            List<String> ranges = new ArrayList<>(chunk.size());
+            for (String sheetTitle : chunk) {
+                ranges.add(rangePlanner.range(sheetTitle));
+            }
+            LOGGER.info("Getting values of {} sheets.", chunk.size());
+            List<ValueRange> valueRanges = batchGet(service, docId, ranges);
+            for (int i = 0; i < chunk.size(); i++) {
+                result.put(chunk.get(i), rangePlanner.toSheetColumns(valueRanges.get(i).getValues()));
+            }
+        }
+        Metrics.recordValue("loader.sheetsPerDocument", result.size());
+        cache.store(docId, rangePlanner.getSettings(), fingerprint, result);
+        return result;
+    }
+
+    //Only sheet properties are requested, whole spreadsheet metadata is not needed
+    private Spreadsheet getMetadata(Sheets service, String docId) throws IOException {
+        LOGGER.info("Getting sheets data.");
+        Metrics.increment("loader.requests." + docId);
+        Spreadsheet spreadsheet = scheduler.execute(service
+                .spreadsheets()
+                .get(docId)
+                .setFields(SheetRangePlanner.METADATA_FIELDS)::execute);
+        LOGGER.info("Got sheets data.");
+        return spreadsheet;
+    }
+
+    // Value ranges are returned in the same order as requested ranges
+    private List<ValueRange> batchGet(Sheets service, String docId, List<String> ranges) throws IOException {
+        Metrics.increment("loader.requests." + docId);
+        BatchGetValuesResponse response = scheduler.execute(service
+                .spreadsheets()
+                .values()
+                .batchGet(docId)
+                .setRanges(ranges)
+                .setMajorDimension("COLUMNS")
+                .setValueRenderOption(rangePlanner.getValueRenderOption())
+                .setDateTimeRenderOption(rangePlanner.getDateTimeRenderOption())
+                .setFields(SheetRangePlanner.VALUES_FIELDS)::execute);
+        return response.getValueRanges();
+    }
+
+    /**
+     * Appends page columns to the sheet columns. Pages omit trailing empty cells, so columns are padded
+     * with empty cells up to the first row of the page before its values are added.
+     *
+     * @param sheetColumns  the columns of previous pages or null for the first page
+     * @param pageColumns   the columns of the page or null when page has no values
+     * @param firstRowIndex the index of the first row of the page in the sheet
+     * @return the sheet columns with values of the page
+     */
+    static List<List<String>> appendPage(List<List<String>> sheetColumns, List<List<String>> pageColumns,
+                                         int firstRowIndex) {
+        if (pageColumns == null) {
+            return sheetColumns;
+        }
+        if (sheetColumns == null) {
+            sheetColumns = new ArrayList<>(pageColumns.size());
+        }
+        for (int c = 0; c < pageColumns.size(); c++) {
+            List<String> page = pageColumns.get(c);
+            if (c == sheetColumns.size()) {
+                sheetColumns.add(new ArrayList<>());
+            }
+            if (page.isEmpty()) {
+                continue;
+            }
+            List<String> column = sheetColumns.get(c);
+            while (column.size() < firstRowIndex) {
+                column.add("");
+            }
+            column.addAll(page);
+        }
+        return sheetColumns;
+    }
+
+    /*
+     * Range of rows of one sheet.
+     */
+    private static final class Page {
+        private final String sheetTitle;
+        private final String range;
+        private final int firstRowIndex;
+        private final boolean last;
+
+        private Page(String sheetTitle, String range, int firstRowIndex, boolean last) {
+            this.sheetTitle = sheetTitle;
+            this.range = range;
+            this.firstRowIndex = firstRowIndex;
+            this.last = last;
+        }
+    }
+}
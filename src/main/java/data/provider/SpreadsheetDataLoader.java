@@ -0,0 +1,197 @@
+package data.provider;
+
+import data.metrics.Metrics;
+import data.source.DataSources;
+import data.source.SpreadsheetDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Loads spreadsheet data on a bounded thread pool, so several documents can be fetched at the same time.
+ * <p>
+ * Concurrent loads of the same document are collapsed into one in-flight fetch, which is important for
+ * the general data file that is requested by every story. Pool size is taken from qaa.loaderThreads
+ * system property, 4 by default.
+ */
+public class SpreadsheetDataLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpreadsheetDataLoader.class);
+    private final ConcurrentMap<String, CompletableFuture<Map<String, List<List<String>>>>> inFlight =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger counter = new AtomicInteger();
+    private final ExecutorService executor;
+
+    private static final class Holder {
+        private static final SpreadsheetDataLoader INSTANCE =
+                new SpreadsheetDataLoader(Integer.getInteger("qaa.loaderThreads", 4));
+    }
+
+    /**
+     * Gets loader shared by all data parsers of current JVM.
+     *
+     * @return the shared loader
+     */
+    public static SpreadsheetDataLoader getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public SpreadsheetDataLoader(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "google-docs-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts loading of the document from the source configured for the provider.
+     *
+     * @param provider the provider of authorized sheets client
+     * @param docId    the spreadsheet id
+     * @return the future with data of all sheets of the document
+     * @see DataSources#forProvider(GoogleDocsDataProvider)
+     */
+    public CompletableFuture<Map<String, List<List<String>>>> load(GoogleDocsDataProvider provider, String docId) {
+        return load(DataSources.forProvider(provider), docId);
+    }
+
+    /**
+     * Starts loading of the document or joins the load that is already in progress.
+     *
+     * @param source the data source
+     * @param docId  the spreadsheet id
+     * @return the future with data of all sheets of the document
+     */
+    public CompletableFuture<Map<String, List<List<String>>>> load(SpreadsheetDataSource source, String docId) {
+        CompletableFuture<Map<String, List<List<String>>>> created = new CompletableFuture<>();
+        CompletableFuture<Map<String, List<List<String>>>> existing = inFlight.putIfAbsent(docId, created);
+        if (existing != null) {
+            LOGGER.info("Document {} is already loading. Waiting for the same load.", docId);
+            return existing;
+        }
+        executor.execute(() -> {
+            //Load is removed from in-flight before completion, so the next load after this one is a new fetch
+            try {
+                Map<String, List<List<String>>> data = getSpreadsheetData(source, docId);
+                inFlight.remove(docId, created);
+                created.complete(data);
+            } catch (Throwable throwable) {
+                inFlight.remove(docId, created);
+                created.completeExceptionally(throwable);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Starts streaming of the document sheets to consumer, consumer is called on the loader thread.
+     * Unlike {@link #load(SpreadsheetDataSource, String)}, each stream is a separate load.
+     *
+     * @param source   the data source
+     * @param docId    the spreadsheet id
+     * @param consumer the consumer of sheet title and columns
+     * @return the future that is completed when all sheets are passed to consumer
+     */
+    public CompletableFuture<Void> stream(SpreadsheetDataSource source, String docId,
+                                          BiConsumer<String, List<List<String>>> consumer) {
+        return CompletableFuture.runAsync(() -> {
+            LOGGER.info("Streaming data from google docs. Document id: {}", docId);
+            LOGGER.info("Loaded files count: {}", counter.incrementAndGet());
+            Metrics.Sample sample = Metrics.start("loader.streamData");
+            try {
+                source.stream(docId, consumer);
+            } catch (IOException | GeneralSecurityException e) {
+                LOGGER.info("Failed to load data. {}", e.toString());
+                throw new RuntimeException("Failed to retrieve data from google docs", e);
+            } finally {
+                sample.stop();
+            }
+        }, executor);
+    }
+
+    /**
+     * Loads several documents at the same time from the source configured for the provider.
+     *
+     * @param provider the provider of authorized sheets client
+     * @param docIds   the spreadsheet ids
+     * @return the data of each document by its id
+     */
+    public Map<String, Map<String, List<List<String>>>> loadAll(GoogleDocsDataProvider provider,
+                                                                 Collection<String> docIds) {
+        return loadAll(DataSources.forProvider(provider), docIds);
+    }
+
+    /**
+     * Loads several documents at the same time.
+     *
+     * @param source   the data source
+     * @param docIds   the spreadsheet ids
+     * @return the data of each document by its id
+     */
+    public Map<String, Map<String, List<List<String>>>> loadAll(SpreadsheetDataSource source,
+                                                                 Collection<String> docIds) {
+        Map<String, CompletableFuture<Map<String, List<List<String>>>>> futures = new LinkedHashMap<>();
+        for (String docId : docIds) {
+            futures.put(docId, load(source, docId));
+        }
+        Map<String, Map<String, List<List<String>>>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<Map<String, List<List<String>>>>> e : futures.entrySet()) {
+            result.put(e.getKey(), await(e.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the loaded data.
+     *
+     * @param future the future returned by {@link #load(GoogleDocsDataProvider, String)} or built on it
+     * @param <T>    the result type
+     * @return the result
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Failed to retrieve data from google docs", e.getCause());
+        }
+    }
+
+    /*
+     * In this method we are retrieving data from google docs.
+     *
+     * @param Data source
+     * @param Spreadsheet id
+     * @return Map with data from Excel file
+     */
+    private Map<String, List<List<String>>> getSpreadsheetData(SpreadsheetDataSource source, String docId) {
+        LOGGER.info("Loading data from google docs. Document id: {}", docId);
+        LOGGER.info("Loaded files count: {}", counter.incrementAndGet());
+        Metrics.Sample sample = Metrics.start("loader.getData");
+        try {
+            return source.load(docId);
+        } catch (IOException | GeneralSecurityException e) {
+            LOGGER.info("Failed to load data. {}", e.toString());
+            throw new RuntimeException("Failed to retrieve data from google docs", e);
+        } finally {
+            sample.stop();
+        }
+    }
+}
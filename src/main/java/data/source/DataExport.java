@@ -0,0 +1,85 @@
+package data.source;
+
+import data.provider.GoogleDocsDataProvider;
+import data.provider.SheetsDataSource;
+import data.provider.SpreadsheetDataLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exports documents from google sheets to local data source:
+ * <pre>
+ * java data.source.DataExport &lt;json|csv|packed&gt; &lt;directory or packed file&gt; &lt;docId&gt;...
+ * </pre>
+ * General data file is loaded the same way as other documents, so its id should be exported too.
+ * Exported data is used with -Dqaa.dataSource=export or packed and -Dqaa.dataSourcePath.
+ */
+public final class DataExport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataExport.class);
+
+    private DataExport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !Arrays.asList("json", "csv", "packed").contains(args[0])) {
+            System.err.println("Usage: DataExport <json|csv|packed> <directory or packed file> <docId>...");
+            System.exit(2);
+        }
+        try (GoogleDocsDataProvider provider = new GoogleDocsDataProvider()) {
+            export(new SheetsDataSource(provider), args[0], Paths.get(args[1]),
+                    Arrays.asList(args).subList(2, args.length));
+        }
+    }
+
+    /**
+     * Loads documents from the source and writes them in local format.
+     *
+     * @param source the source of documents
+     * @param format the format: json, csv or packed
+     * @param target the export directory, or file for packed format
+     * @param docIds the spreadsheet ids
+     * @throws IOException when data can't be written
+     */
+    public static void export(SpreadsheetDataSource source, String format, Path target, List<String> docIds)
+            throws IOException {
+        //All documents are loading at the same time, and written in the given order as soon as they are ready
+        SpreadsheetDataLoader loader = SpreadsheetDataLoader.getInstance();
+        Map<String, CompletableFuture<Map<String, List<List<String>>>>> loads = new LinkedHashMap<>();
+        for (String docId : docIds) {
+            loads.put(docId, loader.load(source, docId));
+        }
+        PackedSnapshotDataSource.Writer packed = "packed".equals(format) ? PackedSnapshotDataSource.writer(target) : null;
+        boolean completed = false;
+        try {
+            for (Map.Entry<String, CompletableFuture<Map<String, List<List<String>>>>> load : loads.entrySet()) {
+                String docId = load.getKey();
+                Map<String, List<List<String>>> data = SpreadsheetDataLoader.await(load.getValue());
+                if (packed != null) {
+                    packed.add(docId, data);
+                } else if ("csv".equals(format)) {
+                    ExportDirectoryDataSource.writeCsv(target, docId, data);
+                } else {
+                    ExportDirectoryDataSource.writeJson(target, docId, data);
+                }
+                LOGGER.info("Document {} exported, {} sheets.", docId, data.size());
+            }
+            completed = true;
+        } finally {
+            if (packed != null && completed) {
+                packed.close();
+            } else if (packed != null) {
+                packed.discard();
+            }
+        }
+        LOGGER.info("{} documents exported to {}", docIds.size(), target);
+    }
+}
@@ -0,0 +1,102 @@
+package data.source;
+
+import data.daemon.DaemonDataSource;
+import data.provider.GoogleDocsDataProvider;
+import data.provider.SheetsDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Chooses data source of the JVM by system properties:
+ * <ul>
+ * <li>qaa.dataSource - "sheets" (default) loads data from google sheets api,
+ * "export" reads directory written by {@link DataExport} in json or csv format,
+ * "packed" reads memory-mapped packed snapshot written by {@link DataExport},
+ * "daemon" receives documents from {@link data.daemon.DataDaemon} and loads them directly when it is not running</li>
+ * <li>qaa.dataSourcePath - export directory or packed snapshot file of local sources</li>
+ * </ul>
+ * Local sources are not using network at all, so they are suitable for sandboxed CI runs.
+ */
+public final class DataSources {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataSources.class);
+    public static final String SHEETS = "sheets";
+    public static final String EXPORT = "export";
+    public static final String PACKED = "packed";
+    public static final String DAEMON = "daemon";
+
+    //Opened on first use, so misconfiguration is reported to the story that asked for data
+    private static SpreadsheetDataSource local;
+
+    private DataSources() {
+    }
+
+    /**
+     * Gets source configured for this JVM.
+     *
+     * @param provider the provider of authorized sheets client, used only by sheets and daemon sources
+     * @return the data source
+     * @throws IllegalArgumentException when qaa.dataSource is unknown
+     * @throws IllegalStateException    when qaa.dataSourcePath of local source is not set
+     */
+    public static SpreadsheetDataSource forProvider(GoogleDocsDataProvider provider) {
+        String type = configuredType();
+        switch (type) {
+            case SHEETS:
+                return new SheetsDataSource(provider);
+            case DAEMON:
+                return new DaemonDataSource(new SheetsDataSource(provider));
+            case EXPORT:
+            case PACKED:
+                return getConfiguredLocal(type);
+            default:
+                throw new IllegalArgumentException("Unknown data source qaa.dataSource=" + type
+                        + ", expected one of: " + SHEETS + ", " + EXPORT + ", " + PACKED + ", " + DAEMON);
+        }
+    }
+
+    /**
+     * Opens local data source.
+     *
+     * @param type the source type, {@link #EXPORT} or {@link #PACKED}
+     * @param path the export directory or packed snapshot file
+     * @return the data source
+     * @throws IOException when packed snapshot can't be opened
+     */
+    public static SpreadsheetDataSource openLocal(String type, Path path) throws IOException {
+        switch (type) {
+            case EXPORT:
+                return new ExportDirectoryDataSource(path);
+            case PACKED:
+                return new PackedSnapshotDataSource(path);
+            default:
+                throw new IllegalArgumentException("Unknown local data source: " + type);
+        }
+    }
+
+    private static String configuredType() {
+        return System.getProperty("qaa.dataSource", SHEETS).trim().toLowerCase(Locale.ROOT);
+    }
+
+    //Failed open is not remembered, so the next story reports the same error instead of a missing source
+    private static synchronized SpreadsheetDataSource getConfiguredLocal(String type) {
+        if (local != null) {
+            return local;
+        }
+        String path = System.getProperty("qaa.dataSourcePath");
+        if (path == null) {
+            throw new IllegalStateException("qaa.dataSourcePath should be set for " + type + " data source");
+        }
+        LOGGER.info("Using {} data source {}", type, path);
+        try {
+            local = openLocal(type, Paths.get(path));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open data source " + path, e);
+        }
+        return local;
+    }
+}
@@ -0,0 +1,110 @@
+package data.source;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Binary encoding of document data that is shared by snapshot cache, packed snapshots and data daemon:
+ * sheets count, then title and columns of each sheet. Columns are written as count (-1 for sheet without
+ * values) and cells of each column. Strings are UTF-8 bytes prefixed with length, -1 is null.
+ */
+public final class DocumentCodec {
+    private DocumentCodec() {
+    }
+
+    public static void writeDocument(DataOutput out, Map<String, List<List<String>>> data) throws IOException {
+        out.writeInt(data.size());
+        for (Map.Entry<String, List<List<String>>> sheet : data.entrySet()) {
+            writeString(out, sheet.getKey());
+            List<List<String>> columns = sheet.getValue();
+            out.writeInt(columns == null ? -1 : columns.size());
+            if (columns == null) {
+                continue;
+            }
+            for (List<String> column : columns) {
+                out.writeInt(column.size());
+                for (String cell : column) {
+                    writeString(out, cell);
+                }
+            }
+        }
+    }
+
+    public static Map<String, List<List<String>>> readDocument(DataInput in) throws IOException {
+        Map<String, List<List<String>>> result = new LinkedHashMap<>();
+        readDocument(in, result::put);
+        return result;
+    }
+
+    /**
+     * Decodes sheets one by one, so only the sheet that is passed to consumer is kept in heap.
+     *
+     * @param in       the input
+     * @param consumer the consumer of sheet title and columns
+     * @throws IOException when input fails
+     */
+    public static void readDocument(DataInput in, BiConsumer<String, List<List<String>>> consumer)
+            throws IOException {
+        int sheetsCount = in.readInt();
+        for (int i = 0; i < sheetsCount; i++) {
+            String title = readString(in);
+            int columnsCount = in.readInt();
+            List<List<String>> columns = null;
+            if (columnsCount >= 0) {
+                columns = new ArrayList<>(columnsCount);
+                for (int c = 0; c < columnsCount; c++) {
+                    int cellsCount = in.readInt();
+                    List<String> column = new ArrayList<>(cellsCount);
+                    for (int r = 0; r < cellsCount; r++) {
+                        column.add(readString(in));
+                    }
+                    columns.add(column);
+                }
+            }
+            consumer.accept(title, columns);
+        }
+    }
+
+    //DataOutput.writeUTF is limited to 64K, so strings are written as length and UTF-8 bytes
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return readString(in, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads string that is received from other process, so its length is checked before bytes are allocated.
+     *
+     * @param in        the input
+     * @param maxLength the max length of the string in bytes
+     * @return the string or null
+     * @throws IOException when input fails or string is longer than max length
+     */
+    public static String readString(DataInput in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > maxLength) {
+            throw new IOException("String of " + length + " bytes is longer than " + maxLength);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,278 @@
+package data.source;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.Key;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads documents exported to local directory.
+ * <p>
+ * Document is stored either as one json file {@code <docId>.json}:
+ * <pre>
+ * {"sheets": [{"title": "run1", "columns": [["Label"], ["value"], ["tag"]]}]}
+ * </pre>
+ * or as directory {@code <docId>/} with one csv file per sheet, named by url encoded sheet title.
+ * Csv files contain sheet rows, the same as csv download of google sheets, so they can be edited by hand.
+ */
+public class ExportDirectoryDataSource implements SpreadsheetDataSource {
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final String JSON_EXTENSION = ".json";
+    private static final String CSV_EXTENSION = ".csv";
+    private final Path directory;
+
+    /**
+     * Json representation of exported document.
+     */
+    public static class ExportedDocument {
+        @Key
+        public List<ExportedSheet> sheets;
+    }
+
+    /**
+     * Json representation of exported sheet.
+     */
+    public static class ExportedSheet {
+        @Key
+        public String title;
+        @Key
+        public List<List<String>> columns;
+    }
+
+    public ExportDirectoryDataSource(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Map<String, List<List<String>>> load(String docId) throws IOException {
+        Path json = directory.resolve(docId + JSON_EXTENSION);
+        if (Files.exists(json)) {
+            return readJson(json);
+        }
+        Path csvDirectory = directory.resolve(docId);
+        if (Files.isDirectory(csvDirectory)) {
+            return readCsvDirectory(csvDirectory);
+        }
+        throw new NoSuchFileException(json.toString(), csvDirectory.toString(),
+                "No exported data of document " + docId);
+    }
+
+    /**
+     * Writes document as json file.
+     *
+     * @param directory the export directory
+     * @param docId     the spreadsheet id
+     * @param data      the document data
+     * @throws IOException when file can't be written
+     */
+    public static void writeJson(Path directory, String docId, Map<String, List<List<String>>> data)
+            throws IOException {
+        ExportedDocument document = new ExportedDocument();
+        document.sheets = new ArrayList<>(data.size());
+        for (Map.Entry<String, List<List<String>>> sheet : data.entrySet()) {
+            ExportedSheet exportedSheet = new ExportedSheet();
+            exportedSheet.title = sheet.getKey();
+            exportedSheet.columns = sheet.getValue();
+            document.sheets.add(exportedSheet);
+        }
+        Files.createDirectories(directory);
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(docId + JSON_EXTENSION), StandardCharsets.UTF_8);
+             JsonGenerator generator = JSON_FACTORY.createJsonGenerator(writer)) {
+            generator.serialize(document);
+        }
+    }
+
+    /**
+     * Writes document as directory with csv file per sheet.
+     *
+     * @param directory the export directory
+     * @param docId     the spreadsheet id
+     * @param data      the document data
+     * @throws IOException when files can't be written
+     */
+    public static void writeCsv(Path directory, String docId, Map<String, List<List<String>>> data)
+            throws IOException {
+        Path csvDirectory = directory.resolve(docId);
+        Files.createDirectories(csvDirectory);
+        for (Map.Entry<String, List<List<String>>> sheet : data.entrySet()) {
+            Path file = csvDirectory.resolve(URLEncoder.encode(sheet.getKey(), "UTF-8") + CSV_EXTENSION);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writeCsvRows(sheet.getValue(), writer);
+            }
+        }
+    }
+
+    private static Map<String, List<List<String>>> readJson(Path file) throws IOException {
+        ExportedDocument document;
+        try (InputStream in = Files.newInputStream(file)) {
+            document = JSON_FACTORY.fromInputStream(in, StandardCharsets.UTF_8, ExportedDocument.class);
+        }
+        Map<String, List<List<String>>> result = new LinkedHashMap<>();
+        if (document.sheets != null) {
+            for (ExportedSheet sheet : document.sheets) {
+                result.put(sheet.title, sheet.columns);
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, List<List<String>>> readCsvDirectory(Path csvDirectory) throws IOException {
+        //Files are sorted by name, because directory listing order depends on file system
+        Map<String, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(csvDirectory, "*" + CSV_EXTENSION)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                files.put(URLDecoder.decode(fileName.substring(0, fileName.length() - CSV_EXTENSION.length()),
+                        "UTF-8"), file);
+            }
+        }
+        Map<String, List<List<String>>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.getValue(), StandardCharsets.UTF_8)) {
+                result.put(file.getKey(), toColumns(readCsvRows(reader)));
+            }
+        }
+        return result;
+    }
+
+    //Columns are padded to the same height, so every csv row has the same number of cells
+    private static void writeCsvRows(List<List<String>> columns, Writer writer) throws IOException {
+        if (columns == null) {
+            return;
+        }
+        int rowsCount = 0;
+        for (List<String> column : columns) {
+            rowsCount = Math.max(rowsCount, column.size());
+        }
+        for (int row = 0; row < rowsCount; row++) {
+            for (int c = 0; c < columns.size(); c++) {
+                if (c > 0) {
+                    writer.write(',');
+                }
+                List<String> column = columns.get(c);
+                writeCsvCell(row < column.size() ? column.get(row) : "", writer);
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    private static void writeCsvCell(String value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    // RFC 4180 rows, quoted cells may contain separators, line breaks and doubled quotes
+    private static List<List<String>> readCsvRows(BufferedReader reader) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        boolean rowStarted = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            rowStarted = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        cell.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    cell.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                row.add(cell.toString());
+                cell.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                row.add(cell.toString());
+                cell.setLength(0);
+                rows.add(row);
+                row = new ArrayList<>();
+                rowStarted = false;
+            } else {
+                cell.append((char) c);
+            }
+        }
+        if (rowStarted) {
+            row.add(cell.toString());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    //Trailing empty cells are dropped, the same as sheets api is doing for COLUMNS major dimension
+    private static List<List<String>> toColumns(List<List<String>> rows) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        int columnsCount = 0;
+        for (List<String> row : rows) {
+            columnsCount = Math.max(columnsCount, row.size());
+        }
+        List<List<String>> columns = new ArrayList<>(columnsCount);
+        for (int c = 0; c < columnsCount; c++) {
+            int height = 0;
+            for (int r = 0; r < rows.size(); r++) {
+                List<String> row = rows.get(r);
+                if (c < row.size() && !row.get(c).isEmpty()) {
+                    height = r + 1;
+                }
+            }
+            List<String> column = new ArrayList<>(height);
+            for (int r = 0; r < height; r++) {
+                List<String> row = rows.get(r);
+                column.add(c < row.size() ? row.get(c) : "");
+            }
+            columns.add(column);
+        }
+        return columns;
+    }
+}
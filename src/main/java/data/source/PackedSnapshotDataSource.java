@@ -0,0 +1,247 @@
+package data.source;
+
+import static java.lang.String.format;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads documents from one packed snapshot file that is memory-mapped, so only the blocks of requested
+ * documents are paged in and the file can be much larger than the heap.
+ * <p>
+ * File layout: header (magic, format version), document blocks encoded by {@link DocumentCodec}, index of blocks
+ * (document id, offset, length) and index offset as the last 8 bytes.
+ */
+public class PackedSnapshotDataSource implements SpreadsheetDataSource, Closeable {
+    private static final int MAGIC = 0x47444450;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+    private static final int FOOTER_LENGTH = 8;
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<String, long[]> index;
+
+    /**
+     * Opens packed snapshot and reads its index.
+     *
+     * @param file the packed snapshot file
+     * @throws IOException when file can't be read or has unsupported format
+     */
+    public PackedSnapshotDataSource(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.index = readIndex();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<String, List<List<String>>> load(String docId) throws IOException {
+        Map<String, List<List<String>>> result = new LinkedHashMap<>();
+        stream(docId, result::put);
+        return result;
+    }
+
+    /**
+     * Decodes sheets one by one, so only the sheet that is passed to consumer is kept in heap.
+     */
+    @Override
+    public void stream(String docId, BiConsumer<String, List<List<String>>> consumer) throws IOException {
+        long[] block = index.get(docId);
+        if (block == null) {
+            throw new IOException(format("Document %s is not in packed snapshot %s", docId, file));
+        }
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, block[0], block[1]);
+        DocumentCodec.readDocument(new DataInputStream(new ByteBufferInputStream(buffer)), consumer);
+    }
+
+    /**
+     * Gets ids of documents in the snapshot.
+     *
+     * @return the document ids
+     */
+    public List<String> getDocIds() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Starts writing of packed snapshot. File is replaced only when writer is closed.
+     *
+     * @param file the packed snapshot file
+     * @return the writer
+     * @throws IOException when file can't be created
+     */
+    public static Writer writer(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    private Map<String, long[]> readIndex() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_LENGTH + FOOTER_LENGTH) {
+            throw new IOException("Packed snapshot is truncated: " + file);
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported packed snapshot format: " + file);
+        }
+        long indexOffset = channel.map(FileChannel.MapMode.READ_ONLY, size - FOOTER_LENGTH, FOOTER_LENGTH).getLong();
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, size - FOOTER_LENGTH - indexOffset);
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+        int docsCount = in.readInt();
+        Map<String, long[]> result = new HashMap<>(docsCount * 4 / 3 + 1);
+        for (int i = 0; i < docsCount; i++) {
+            result.put(DocumentCodec.readString(in), new long[]{in.readLong(), in.readLong()});
+        }
+        return result;
+    }
+
+    /*
+     * Reads mapped block without copying it to heap first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Writes documents one by one, so the whole snapshot is never kept in memory.
+     */
+    public static final class Writer implements Closeable {
+        private final Path file;
+        private final Path tempFile;
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final Map<String, long[]> index = new LinkedHashMap<>();
+        private boolean closed;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            this.tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            this.channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+        }
+
+        /**
+         * Appends document to the snapshot.
+         *
+         * @param docId the spreadsheet id
+         * @param data  the document data
+         * @throws IOException when document can't be written
+         */
+        public void add(String docId, Map<String, List<List<String>>> data) throws IOException {
+            long offset = position();
+            DocumentCodec.writeDocument(out, data);
+            long length = position() - offset;
+            //Each block is mapped at once by the reader, and mapping is limited by int size
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(format("Document %s is too large for packed snapshot: %d bytes", docId, length));
+            }
+            index.put(docId, new long[]{offset, length});
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                long indexOffset = position();
+                out.writeInt(index.size());
+                for (Map.Entry<String, long[]> entry : index.entrySet()) {
+                    DocumentCodec.writeString(out, entry.getKey());
+                    out.writeLong(entry.getValue()[0]);
+                    out.writeLong(entry.getValue()[1]);
+                }
+                out.writeLong(indexOffset);
+                out.close();
+                try {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                channel.close();
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        /**
+         * Stops writing without replacing the file, used when export fails.
+         *
+         * @throws IOException when temp file can't be deleted
+         */
+        public void discard() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                channel.close();
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        private long position() throws IOException {
+            out.flush();
+            return channel.position();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package data.source;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Source of spreadsheet data for the parser.
+ * <p>
+ * Data of a document is returned in the same structure for all sources: sheet title to columns of the sheet,
+ * where index of each column is its index in the sheet (A is 0) and trailing empty cells are omitted.
+ */
+public interface SpreadsheetDataSource {
+    /**
+     * Loads data of all sheets of the document.
+     *
+     * @param docId the spreadsheet id
+     * @return the columns of each sheet by sheet title, columns are null for sheet without values
+     * @throws IOException              when data can't be read
+     * @throws GeneralSecurityException when source can't be authorized
+     */
+    Map<String, List<List<String>>> load(String docId) throws IOException, GeneralSecurityException;
+
+    /**
+     * Passes sheets of the document to consumer one by one, as soon as each of them is loaded.
+     * Sources that can load sheets separately are not keeping the whole document in memory.
+     *
+     * @param docId    the spreadsheet id
+     * @param consumer the consumer of sheet title and columns
+     * @throws IOException              when data can't be read
+     * @throws GeneralSecurityException when source can't be authorized
+     */
+    default void stream(String docId, BiConsumer<String, List<List<String>>> consumer)
+            throws IOException, GeneralSecurityException {
+        for (Map.Entry<String, List<List<String>>> sheet : load(docId).entrySet()) {
+            consumer.accept(sheet.getKey(), sheet.getValue());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package data.parser;
+
+import org.jbehave.core.model.ExamplesTable;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ColumnarExamplesTableTest {
+
+    @Test
+    public void hasSameHeadersAndRowsAsTableText() {
+        Map<String, List<String>> columns = new LinkedHashMap<>();
+        columns.put("RunName", Arrays.asList("first", "second"));
+        columns.put(" Variable ", Arrays.asList("  padded value ", "plain"));
+        columns.put("General", Arrays.asList("shared", "shared"));
+        columns.put("Empty", Arrays.asList("", " "));
+
+        ColumnarExamplesTable.Builder builder = new ColumnarExamplesTable.Builder();
+        builder.values("RunName").addAll(columns.get("RunName"));
+        builder.values(" Variable ").addAll(columns.get(" Variable "));
+        builder.share("General", "shared");
+        builder.values("Empty").addAll(columns.get("Empty"));
+        ColumnarExamplesTable table = builder.build();
+
+        ExamplesTable expected = new ExamplesTable(ExamplesTableSerializer.serialize(columns));
+        assertEquals(expected.getHeaders(), table.getHeaders());
+        assertEquals(expected.getRowCount(), table.getRowsCount());
+        assertEquals(expected.getRows(), table.getRows());
+        assertEquals(expected.getRow(1), table.getRow(1));
+    }
+
+    @Test
+    public void rowViewsBehaveAsMaps() {
+        ColumnarExamplesTable.Builder builder = new ColumnarExamplesTable.Builder();
+        builder.values("RunName").add("run");
+        builder.values("Variable").add("value");
+        Map<String, String> row = builder.build().getRow(0);
+
+        assertEquals("value", row.get("Variable"));
+        assertTrue(row.containsKey("RunName"));
+        assertNull(row.get("Missing"));
+        assertEquals(Arrays.asList("RunName", "Variable"), Arrays.asList(row.keySet().toArray()));
+        assertEquals(row.hashCode(), new LinkedHashMap<>(row).hashCode());
+    }
+
+    @Test
+    public void rejectsHeadersThatAreEqualAfterTrimming() {
+        Map<String, List<String>> columns = new LinkedHashMap<>();
+        columns.put("RunName", Collections.singletonList("run"));
+        columns.put("name", Collections.singletonList("first"));
+        columns.put(" name ", Collections.singletonList("second"));
+        ExamplesTable expected = new ExamplesTable(ExamplesTableSerializer.serialize(columns));
+        String expectedMessage = null;
+        try {
+            expected.getRows();
+            fail("JBehave should reject non-distinct columns");
+        } catch (ExamplesTable.NonDistinctColumnFound e) {
+            expectedMessage = e.getMessage();
+        }
+
+        ColumnarExamplesTable.Builder builder = new ColumnarExamplesTable.Builder();
+        for (Map.Entry<String, List<String>> column : columns.entrySet()) {
+            builder.values(column.getKey()).addAll(column.getValue());
+        }
+        try {
+            builder.build();
+            fail("Non-distinct columns should be rejected");
+        } catch (ExamplesTable.NonDistinctColumnFound e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsColumnWithWrongValuesCount() {
+        ColumnarExamplesTable.Builder builder = new ColumnarExamplesTable.Builder();
+        builder.values("RunName").addAll(Arrays.asList("first", "second"));
+        builder.values("Variable").add("only first");
+        try {
+            builder.build();
+            fail("Column with missing values should be rejected");
+        } catch (RuntimeException e) {
+            assertEquals("Wrong labels entries count", e.getMessage());
+        }
+    }
+
+    @Test
+    public void sharedValueCountsForEachRun() {
+        ColumnarExamplesTable.Builder builder = new ColumnarExamplesTable.Builder();
+        builder.values("RunName").addAll(Arrays.asList("first", "second"));
+        builder.share("General", "shared");
+        builder.values("General").add("extra");
+        try {
+            builder.build();
+            fail("Shared column with extra values should be rejected");
+        } catch (RuntimeException e) {
+            assertEquals("Wrong labels entries count", e.getMessage());
+        }
+    }
+
+    @Test
+    public void tableWithoutRunNameHasNoRows() {
+        ColumnarExamplesTable.Builder builder = new ColumnarExamplesTable.Builder();
+        builder.values("Variable").add("value");
+        ColumnarExamplesTable table = builder.build();
+
+        assertEquals(0, table.getRowsCount());
+        assertEquals(new ExamplesTable("").getRows(), table.getRows());
+    }
+}
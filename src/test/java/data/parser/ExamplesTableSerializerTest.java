@@ -0,0 +1,60 @@
+package data.parser;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExamplesTableSerializerTest {
+
+    @Test
+    public void writesHeadersAndRowsWithDefaultSeparator() {
+        Map<String, List<String>> table = new LinkedHashMap<>();
+        table.put("RunName", Arrays.asList("firstRun", "secondRun"));
+        table.put("Variable", Arrays.asList("firstVariable", null));
+
+        assertEquals("|RunName|Variable|\n|firstRun|firstVariable|\n|secondRun||\n",
+                ExamplesTableSerializer.serialize(table));
+    }
+
+    @Test
+    public void collapsesLineBreaksToSpaces() {
+        Map<String, List<String>> table = new LinkedHashMap<>();
+        table.put("RunName", Arrays.asList("run"));
+        table.put("Text", Arrays.asList("a\r\nb\nc\rd"));
+
+        assertEquals("|RunName|Text|\n|run|a b c d|\n", ExamplesTableSerializer.serialize(table));
+    }
+
+    @Test
+    public void usesAlternativeSeparatorWhenCellContainsPipe() {
+        Map<String, List<String>> table = new LinkedHashMap<>();
+        table.put("RunName", Arrays.asList("run"));
+        table.put("Expression", Arrays.asList("a|b"));
+
+        assertEquals("{headerSeparator=¦, valueSeparator=¦}\n"
+                        + "¦RunName¦Expression¦\n¦run¦a|b¦\n",
+                ExamplesTableSerializer.serialize(table));
+    }
+
+    @Test
+    public void skipsAlternativeSeparatorsThatAreUsedInValues() {
+        Map<String, List<String>> table = new LinkedHashMap<>();
+        table.put("Run|Name", Arrays.asList("run¦"));
+
+        assertEquals("{headerSeparator=‖, valueSeparator=‖}\n‖Run|Name‖\n‖run¦‖\n",
+                ExamplesTableSerializer.serialize(table));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failsWhenAllSeparatorsAreUsed() {
+        Map<String, List<String>> table = new LinkedHashMap<>();
+        table.put("RunName", Arrays.asList("|¦‖¤│"));
+
+        ExamplesTableSerializer.serialize(table);
+    }
+}
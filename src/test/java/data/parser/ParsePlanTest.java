@@ -0,0 +1,138 @@
+package data.parser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParsePlanTest {
+
+    @Test
+    public void producesSameColumnsAsBaselineAlgorithm() {
+        List<String> tags = Arrays.asList(
+                "field1", "", "!comment", "field2",
+                "@startNestedStructure structure", "@string#first", "@int#second", "@endNestedStructure",
+                "field1", "@startNestedStructure other", "@date#when", "@endNestedStructure", "field3");
+        List<String> values = Arrays.asList(
+                "value 1", "ignored", "ignored comment", "multi\nline\nvalue",
+                "", "nested 1", "nested\n2", "",
+                "repeated", "", "2020-01-01", "", "last");
+
+        assertEquals(baseline(tags, values), parse(tags, values));
+    }
+
+    @Test
+    public void keepsColumnsInOrderOfFirstAppearance() {
+        ParsePlan plan = ParsePlan.of(Arrays.asList("b", "@startNestedStructure n", "@string#x",
+                "@endNestedStructure", "a", "b"));
+
+        assertEquals(Arrays.asList("b", " n", "a"), plan.getColumns());
+    }
+
+    @Test
+    public void missingValuesAreEmpty() {
+        List<String> tags = Arrays.asList("field1", "field2", "@startNestedStructure n", "@string#x",
+                "@endNestedStructure");
+
+        Map<String, List<String>> parsed = parse(tags, Collections.singletonList("value"));
+
+        assertEquals(Collections.singletonList("value"), parsed.get("field1"));
+        assertEquals(Collections.singletonList(""), parsed.get("field2"));
+        assertEquals(Collections.singletonList("|label|type|value|\n|x|string||\n"), parsed.get(" n"));
+    }
+
+    @Test
+    public void ignoresNestedRowOutsideOfStructure() {
+        Map<String, List<String>> parsed = parse(Arrays.asList("@string#before", "field"),
+                Arrays.asList("ignored", "value"));
+
+        assertEquals(Collections.singletonMap("field", Collections.singletonList("value")), parsed);
+    }
+
+    @Test
+    public void ignoresNestedRowAfterStructureAsBaselineAlgorithm() {
+        List<String> tags = Arrays.asList("@startNestedStructure n", "@string#x", "@endNestedStructure",
+                "@string#after", "field");
+        List<String> values = Arrays.asList("", "nested", "", "ignored", "value");
+
+        assertEquals(baseline(tags, values), parse(tags, values));
+    }
+
+    @Test
+    public void failsOnNestedRowWithoutLabel() {
+        assertCompilationFails(Arrays.asList("@startNestedStructure n", "@string", "@endNestedStructure"));
+    }
+
+    @Test
+    public void reusesPlanOfSameLayout() {
+        List<String> tags = Arrays.asList("reused1", "reused2");
+
+        assertSame(ParsePlan.of(tags), ParsePlan.of(new ArrayList<>(tags)));
+    }
+
+    private static Map<String, List<String>> parse(List<String> tags, List<String> values) {
+        ParsePlan plan = ParsePlan.of(tags);
+        List<List<String>> targets = new ArrayList<>();
+        for (int i = 0; i < plan.getColumns().size(); i++) {
+            targets.add(new ArrayList<>());
+        }
+        plan.apply(values, targets, ExamplesTableSerializer::serialize);
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (int i = 0; i < plan.getColumns().size(); i++) {
+            result.put(plan.getColumns().get(i), targets.get(i));
+        }
+        return result;
+    }
+
+    /*
+     * Tag processing of one sheet as it was done before parse plans: value rows are added to column of their tag,
+     * nested structure is collected to HashMap and stored when its end tag is reached.
+     */
+    private static Map<String, List<String>> baseline(List<String> tags, List<String> values) {
+        Map<String, List<String>> result = new HashMap<>();
+        String nestedName = null;
+        Map<String, List<String>> nested = null;
+        for (int i = 0; i < tags.size(); i++) {
+            String label = tags.get(i);
+            if (!label.startsWith("!") && !"".equals(label) && !label.startsWith("@")) {
+                result.computeIfAbsent(label, k -> new ArrayList<>()).add(values.get(i).replaceAll("\n", " "));
+            } else if (label.startsWith("@")) {
+                if (label.contains("@startNestedStructure ")) {
+                    nestedName = label.replace("@startNestedStructure", "");
+                    nested = new HashMap<>();
+                    nested.put("label", new ArrayList<>());
+                    nested.put("type", new ArrayList<>());
+                    nested.put("value", new ArrayList<>());
+                } else if ("@endNestedStructure".equals(label)) {
+                    result.computeIfAbsent(nestedName, k -> new ArrayList<>())
+                            .add(ExamplesTableSerializer.serialize(nested));
+                } else {
+                    String[] parts = label.replace("@", "").split("#");
+                    nested.get("label").add(parts[1]);
+                    nested.get("type").add(parts[0]);
+                    nested.get("value").add(values.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void assertCompilationFails(List<String> tags) {
+        try {
+            ParsePlan.of(tags);
+            fail("Plan should not be compiled for tags " + tags);
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Wrong nested structure tag"));
+        }
+    }
+}
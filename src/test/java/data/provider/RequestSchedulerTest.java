@@ -0,0 +1,137 @@
+package data.provider;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestSchedulerTest {
+
+    @Test
+    public void serverErrorsTimeoutsAndQuotaErrorsAreRetried() throws IOException {
+        assertRetried(httpError(503, null));
+        assertRetried(httpError(500, null));
+        assertRetried(httpError(408, null));
+        assertRetried(httpError(429, null));
+        assertRetried(rateLimitError("rateLimitExceeded"));
+        assertRetried(rateLimitError("userRateLimitExceeded"));
+        assertRetried(new SocketTimeoutException("Read timed out"));
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() {
+        assertNotRetried(httpError(404, null));
+        assertNotRetried(httpError(400, null));
+        assertNotRetried(rateLimitError("forbidden"));
+        assertNotRetried(new IOException("Unexpected end of stream"));
+    }
+
+    @Test
+    public void requestFailsAfterMaxRetries() {
+        RequestScheduler scheduler = new RequestScheduler(6000, 2, 1, 1);
+        IOException error = httpError(503, null);
+        try {
+            scheduler.execute(() -> {
+                throw error;
+            });
+            fail("Error should be thrown after retries");
+        } catch (IOException e) {
+            assertSame(error, e);
+        }
+        assertEquals(3L, scheduler.getRequestsCount());
+        assertEquals(2L, scheduler.getRetriesCount());
+    }
+
+    @Test
+    public void retryAfterIsClampedToMaxBackoff() throws IOException {
+        RequestScheduler scheduler = new RequestScheduler(6000, 1, 1, 50);
+        int[] attempts = {0};
+        String result = scheduler.execute(() -> {
+            if (attempts[0]++ == 0) {
+                throw httpError(429, "3600");
+            }
+            return "done";
+        });
+        assertEquals("done", result);
+        assertEquals(50L, scheduler.getBackoffWaitMillis());
+    }
+
+    @Test
+    public void retryAfterShorterThanMaxBackoffIsUsed() throws IOException {
+        RequestScheduler scheduler = new RequestScheduler(6000, 1, 1, 5000);
+        int[] attempts = {0};
+        scheduler.execute(() -> {
+            if (attempts[0]++ == 0) {
+                throw httpError(429, "0");
+            }
+            return "done";
+        });
+        assertEquals(0L, scheduler.getBackoffWaitMillis());
+    }
+
+    @Test
+    public void tokenBucketWaitsOnlyAfterBudgetIsUsedUp() throws IOException {
+        //600 requests per minute is one token per 100 ms
+        RequestScheduler scheduler = new RequestScheduler(600, 0, 1, 1);
+        for (int i = 0; i < 600; i++) {
+            scheduler.acquire();
+        }
+        assertEquals(0L, scheduler.getQuotaWaitMillis());
+        scheduler.acquire();
+        long wait = scheduler.getQuotaWaitMillis();
+        assertTrue("Wait should be about one token: " + wait, wait > 0 && wait <= 100);
+    }
+
+    private static void assertRetried(IOException error) throws IOException {
+        RequestScheduler scheduler = new RequestScheduler(6000, 1, 1, 1);
+        int[] attempts = {0};
+        String result = scheduler.execute(() -> {
+            if (attempts[0]++ == 0) {
+                throw error;
+            }
+            return "done";
+        });
+        assertEquals("done", result);
+        assertEquals(error.toString(), 1L, scheduler.getRetriesCount());
+    }
+
+    private static void assertNotRetried(IOException error) {
+        RequestScheduler scheduler = new RequestScheduler(6000, 5, 1, 1);
+        try {
+            scheduler.execute(() -> {
+                throw error;
+            });
+            fail("Error should not be retried: " + error);
+        } catch (IOException e) {
+            assertSame(error, e);
+        }
+        assertEquals(1L, scheduler.getRequestsCount());
+        assertEquals(0L, scheduler.getRetriesCount());
+    }
+
+    private static HttpResponseException httpError(int status, String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setRetryAfter(retryAfter);
+        return new HttpResponseException.Builder(status, "status " + status, headers).build();
+    }
+
+    private static GoogleJsonResponseException rateLimitError(String reason) {
+        GoogleJsonError.ErrorInfo errorInfo = new GoogleJsonError.ErrorInfo();
+        errorInfo.setReason(reason);
+        GoogleJsonError details = new GoogleJsonError();
+        details.setCode(403);
+        details.setErrors(Collections.singletonList(errorInfo));
+        return new GoogleJsonResponseException(
+                new HttpResponseException.Builder(403, "Forbidden", new HttpHeaders()), details);
+    }
+}
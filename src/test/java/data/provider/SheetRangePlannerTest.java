@@ -0,0 +1,91 @@
+package data.provider;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SheetRangePlannerTest {
+
+    @Test
+    public void shiftsDefaultColumnsToSheetPositions() {
+        SheetRangePlanner planner = new SheetRangePlanner("B:C", "FORMATTED_VALUE", "FORMATTED_STRING");
+
+        List<List<String>> columns = planner.toSheetColumns(Arrays.asList(
+                Arrays.<Object>asList("value 1", "value 2"),
+                Arrays.<Object>asList("@string#name", "@list")));
+
+        assertEquals(Arrays.asList(
+                Collections.emptyList(),
+                Arrays.asList("value 1", "value 2"),
+                Arrays.asList("@string#name", "@list")), columns);
+        assertEquals("'Run 1'!B:C", planner.range("Run 1"));
+    }
+
+    @Test
+    public void shiftsCustomColumnsToSheetPositions() {
+        SheetRangePlanner planner = new SheetRangePlanner("d:f", "FORMATTED_VALUE", "FORMATTED_STRING");
+
+        List<List<String>> columns = planner.toSheetColumns(Arrays.asList(
+                Arrays.<Object>asList("d"), Arrays.<Object>asList("e"), Arrays.<Object>asList("f")));
+
+        assertEquals(6, columns.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Collections.emptyList(), columns.get(i));
+        }
+        assertEquals(Arrays.asList("d"), columns.get(3));
+        assertEquals(Arrays.asList("f"), columns.get(5));
+        assertEquals("'It''s'!D2:F10", planner.range("It's", 2, 10));
+    }
+
+    @Test
+    public void keepsWholeSheetUnshifted() {
+        SheetRangePlanner planner = new SheetRangePlanner("A:Z", "FORMATTED_VALUE", "FORMATTED_STRING");
+
+        List<List<String>> columns = planner.toSheetColumns(Arrays.asList(
+                Arrays.<Object>asList("a"), Arrays.<Object>asList("b")));
+
+        assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b")), columns);
+    }
+
+    @Test
+    public void keepsEmptyLeadingRequestedColumn() {
+        SheetRangePlanner planner = new SheetRangePlanner("B:C", "FORMATTED_VALUE", "FORMATTED_STRING");
+
+        List<List<String>> columns = planner.toSheetColumns(Arrays.asList(
+                Collections.emptyList(),
+                Arrays.<Object>asList("@string#name")));
+
+        assertEquals(3, columns.size());
+        assertEquals(Collections.emptyList(), columns.get(1));
+        assertEquals(Arrays.asList("@string#name"), columns.get(2));
+    }
+
+    @Test
+    public void returnsNullForRangeWithoutValues() {
+        SheetRangePlanner planner = new SheetRangePlanner("B:C", "FORMATTED_VALUE", "FORMATTED_STRING");
+
+        assertNull(planner.toSheetColumns(null));
+    }
+
+    @Test
+    public void convertsUnformattedValuesToStrings() {
+        SheetRangePlanner planner = new SheetRangePlanner("B:C", "UNFORMATTED_VALUE", "SERIAL_NUMBER");
+
+        List<List<String>> columns = planner.toSheetColumns(Collections.singletonList(
+                Arrays.<Object>asList(new BigDecimal("1.5"), Boolean.TRUE, null, "text")));
+
+        assertEquals(Arrays.asList("1.5", "true", "", "text"), columns.get(1));
+        assertEquals("B:C UNFORMATTED_VALUE SERIAL_NUMBER", planner.getSettings());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsColumnsWithoutRange() {
+        new SheetRangePlanner("B", "FORMATTED_VALUE", "FORMATTED_STRING");
+    }
+}
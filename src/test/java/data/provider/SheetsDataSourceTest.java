@@ -0,0 +1,104 @@
+package data.provider;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class SheetsDataSourceTest {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty("qaa.batchGetChunkSize");
+    }
+
+    @Test
+    public void rejectsChunkSizeBelowOne() {
+        for (String chunkSize : new String[]{"0", "-1"}) {
+            System.setProperty("qaa.batchGetChunkSize", chunkSize);
+            try {
+                new SheetsDataSource(null);
+                fail("Chunk size should be rejected: " + chunkSize);
+            } catch (IllegalArgumentException e) {
+                assertEquals("qaa.batchGetChunkSize should be positive: " + chunkSize, e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void acceptsPositiveChunkSize() {
+        System.setProperty("qaa.batchGetChunkSize", "1");
+        new SheetsDataSource(null);
+    }
+
+    @Test
+    public void padsColumnsOfShortPage() {
+        List<List<String>> sheet = SheetsDataSource.appendPage(null, columns(
+                Collections.<String>emptyList(), Arrays.asList("1", "2")), 0);
+        sheet = SheetsDataSource.appendPage(sheet, columns(
+                Collections.<String>emptyList(), Arrays.asList("5")), 4);
+
+        assertEquals(columns(Collections.<String>emptyList(), Arrays.asList("1", "2", "", "", "5")), sheet);
+    }
+
+    @Test
+    public void padsGapsAcrossPages() {
+        List<List<String>> sheet = SheetsDataSource.appendPage(null, columns(Arrays.asList("1")), 0);
+        sheet = SheetsDataSource.appendPage(sheet, null, 2);
+        sheet = SheetsDataSource.appendPage(sheet, columns(Arrays.asList("5", "6")), 4);
+
+        assertEquals(columns(Arrays.asList("1", "", "", "", "5", "6")), sheet);
+    }
+
+    @Test
+    public void keepsRaggedColumnsAligned() {
+        List<List<String>> sheet = SheetsDataSource.appendPage(null, columns(
+                Arrays.asList("1", "2"), Arrays.asList("tag1")), 0);
+        sheet = SheetsDataSource.appendPage(sheet, columns(
+                Arrays.asList("3"), Arrays.asList("tag3", "tag4")), 2);
+
+        assertEquals(columns(Arrays.asList("1", "2", "3"), Arrays.asList("tag1", "", "tag3", "tag4")), sheet);
+    }
+
+    @Test
+    public void padsPageEndingWithEmptyRows() {
+        //Page of rows 0-2 has values only in the first row, trailing empty cells are omitted
+        List<List<String>> sheet = SheetsDataSource.appendPage(null, columns(Arrays.asList("1")), 0);
+        sheet = SheetsDataSource.appendPage(sheet, columns(Arrays.asList("4")), 3);
+
+        assertEquals(columns(Arrays.asList("1", "", "", "4")), sheet);
+    }
+
+    @Test
+    public void keepsColumnMissingFromLaterPage() {
+        List<List<String>> sheet = SheetsDataSource.appendPage(null, columns(
+                Arrays.asList("1", "2"), Arrays.asList("tag1", "tag2")), 0);
+        sheet = SheetsDataSource.appendPage(sheet, columns(Arrays.asList("3")), 2);
+        sheet = SheetsDataSource.appendPage(sheet, columns(Arrays.asList("5"), Arrays.asList("tag5")), 4);
+
+        assertEquals(columns(Arrays.asList("1", "2", "3", "", "5"),
+                Arrays.asList("tag1", "tag2", "", "", "tag5")), sheet);
+    }
+
+    @Test
+    public void sheetWithoutValuesStaysNull() {
+        assertNull(SheetsDataSource.appendPage(null, null, 0));
+        assertNull(SheetsDataSource.appendPage(SheetsDataSource.appendPage(null, null, 0), null, 2));
+    }
+
+    @SafeVarargs
+    private static List<List<String>> columns(List<String>... columns) {
+        List<List<String>> result = new ArrayList<>();
+        for (List<String> column : columns) {
+            result.add(new ArrayList<>(column));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+package data.source;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExportDirectoryDataSourceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void csvRoundTripKeepsQuotedCommasLineBreaksAndQuotes() throws IOException {
+        Map<String, List<List<String>>> data = new LinkedHashMap<>();
+        data.put("run1", Arrays.asList(
+                Collections.<String>emptyList(),
+                Arrays.asList("a, b", "first\nsecond", "windows\r\nline", "say \"hi\"", "", "\""),
+                Arrays.asList("tag1", "tag2", "tag3", "tag4", "tag5", "tag6")));
+
+        assertEquals(data, roundTrip(data));
+    }
+
+    @Test
+    public void csvRoundTripDropsTrailingEmptyCells() throws IOException {
+        Map<String, List<List<String>>> data = new LinkedHashMap<>();
+        data.put("run1", Arrays.asList(
+                Arrays.asList("label", "", ""),
+                Arrays.asList("value"),
+                Arrays.asList("", "tag", "")));
+
+        Map<String, List<List<String>>> expected = new LinkedHashMap<>();
+        expected.put("run1", Arrays.asList(
+                Arrays.asList("label"),
+                Arrays.asList("value"),
+                Arrays.asList("", "tag")));
+        assertEquals(expected, roundTrip(data));
+    }
+
+    @Test
+    public void csvRoundTripKeepsSheetTitlesAndSheetsWithoutValues() throws IOException {
+        Map<String, List<List<String>>> data = new LinkedHashMap<>();
+        data.put("Run 1/2 'copy'", Arrays.asList(Arrays.asList("label"), Arrays.asList("value")));
+        data.put("empty", null);
+
+        Map<String, List<List<String>>> loaded = roundTrip(data);
+
+        assertEquals(data.keySet(), loaded.keySet());
+        assertEquals(data.get("Run 1/2 'copy'"), loaded.get("Run 1/2 'copy'"));
+        assertNull(loaded.get("empty"));
+    }
+
+    @Test
+    public void readsCsvWrittenByHand() throws IOException {
+        Path csvDirectory = folder.newFolder("doc").toPath();
+        Files.write(csvDirectory.resolve("run1.csv"),
+                "label,\"multi\nline\",tag\nlast,\"x \"\"y\"\"\",end".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, List<List<String>>> loaded = new ExportDirectoryDataSource(folder.getRoot().toPath()).load("doc");
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("label", "last"),
+                Arrays.asList("multi\nline", "x \"y\""),
+                Arrays.asList("tag", "end")), loaded.get("run1"));
+    }
+
+    @Test
+    public void jsonRoundTripKeepsData() throws IOException {
+        Map<String, List<List<String>>> data = new LinkedHashMap<>();
+        data.put("run1", Arrays.asList(Arrays.asList("a, b", ""), Arrays.asList("line\nbreak")));
+        Path directory = folder.getRoot().toPath();
+
+        ExportDirectoryDataSource.writeJson(directory, "doc", data);
+
+        assertEquals(data, new ExportDirectoryDataSource(directory).load("doc"));
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void failsWhenDocumentIsNotExported() throws IOException {
+        new ExportDirectoryDataSource(folder.getRoot().toPath()).load("missing");
+    }
+
+    private Map<String, List<List<String>>> roundTrip(Map<String, List<List<String>>> data) throws IOException {
+        Path directory = folder.getRoot().toPath();
+        ExportDirectoryDataSource.writeCsv(directory, "doc", data);
+        return new ExportDirectoryDataSource(directory).load("doc");
+    }
+}